@@ -0,0 +1,98 @@
+package com.example.movieticketsystem.benchmark;
+
+import com.example.movieticketsystem.MovieTicketSystemApplication;
+import com.example.movieticketsystem.model.Movie;
+import com.example.movieticketsystem.model.Role;
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.Seat;
+import com.example.movieticketsystem.model.User;
+import com.example.movieticketsystem.repository.MovieRepository;
+import com.example.movieticketsystem.repository.RoleRepository;
+import com.example.movieticketsystem.repository.UserRepository;
+import com.example.movieticketsystem.service.ScreeningService;
+import com.example.movieticketsystem.service.SeatService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Starts the application against an in-memory H2 database and seeds data to book against.
+ * Each JMH fork is a fresh JVM, so every benchmark gets its own empty database.
+ */
+final class BenchmarkApplication {
+
+    private static final String[] H2_PROPERTIES = {
+            "spring.main.web-application-type=none",
+            "spring.main.banner-mode=off",
+            "spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "spring.flyway.enabled=false",
+            "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+            "spring.jpa.show-sql=false",
+            "logging.level.root=WARN"
+    };
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraProperties) {
+        // Passed as command line arguments so they override application.properties
+        List<String> args = new ArrayList<>();
+        for (String property : H2_PROPERTIES) {
+            args.add("--" + property);
+        }
+        for (String property : extraProperties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(MovieTicketSystemApplication.class).run(args.toArray(String[]::new));
+    }
+
+    /**
+     * Create a screening tomorrow with the given number of seats and return its seat ids in layout order
+     */
+    static Screening createScreening(ConfigurableApplicationContext context, int totalSeats) {
+        Movie movie = new Movie();
+        movie.setTitle("Benchmark Movie");
+        movie.setDuration(120);
+        movie = context.getBean(MovieRepository.class).save(movie);
+
+        Screening screening = new Screening();
+        screening.setMovie(movie);
+        screening.setStartTime(LocalDateTime.now().plusDays(1));
+        screening.setEndTime(screening.getStartTime().plusMinutes(movie.getDuration()));
+        screening.setHallNumber(1);
+        screening.setPrice(BigDecimal.TEN);
+        screening.setTotalSeats(totalSeats);
+        screening = context.getBean(ScreeningService.class).saveScreening(screening);
+        context.getBean(SeatService.class).initializeSeatReservations(screening);
+        return screening;
+    }
+
+    static List<Long> seatIds(ConfigurableApplicationContext context, Screening screening) {
+        return context.getBean(SeatService.class).findSeatsByHall(screening.getHallNumber()).stream()
+                .map(Seat::getId)
+                .sorted()
+                .toList();
+    }
+
+    static User createCustomer(ConfigurableApplicationContext context) {
+        RoleRepository roleRepository = context.getBean(RoleRepository.class);
+        Role role = roleRepository.findByName("ROLE_CUSTOMER")
+                .orElseGet(() -> roleRepository.save(new Role(null, "ROLE_CUSTOMER")));
+
+        User user = new User();
+        user.setUsername("bench-" + UUID.randomUUID());
+        user.setPassword("not-used");
+        user.setEmail(user.getUsername() + "@example.com");
+        user.setRole(role);
+        return context.getBean(UserRepository.class).save(user);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.movieticketsystem.benchmark;
+
+import com.example.movieticketsystem.model.BookingResult;
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.User;
+import com.example.movieticketsystem.service.BookingService;
+import com.example.movieticketsystem.service.ConcurrentBookingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1000 customers reserving at once through ConcurrentBookingService,
+ * on the platform thread pool versus virtual threads (spring.threads.virtual.enabled).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ExecutionModeBenchmark {
+
+    private static final int RESERVERS = 1000;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+    private ConcurrentBookingService concurrentBookingService;
+    private User user;
+    private Long screeningId;
+    private List<Long> seatIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("spring.threads.virtual.enabled=" + virtualThreads);
+        bookingService = context.getBean(BookingService.class);
+        concurrentBookingService = context.getBean(ConcurrentBookingService.class);
+        user = BenchmarkApplication.createCustomer(context);
+        Screening screening = BenchmarkApplication.createScreening(context, RESERVERS);
+        screeningId = screening.getId();
+        seatIds = BenchmarkApplication.seatIds(context, screening);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESERVERS)
+    public int reserveConcurrently() {
+        List<CompletableFuture<BookingResult>> futures = new ArrayList<>(RESERVERS);
+        for (Long seatId : seatIds) {
+            futures.add(concurrentBookingService.reserveSeatsAsync(screeningId, List.of(seatId), user));
+        }
+
+        int succeeded = 0;
+        for (CompletableFuture<BookingResult> future : futures) {
+            if (future.join().isSuccess()) {
+                succeeded++;
+            }
+        }
+        for (Long seatId : seatIds) {
+            bookingService.releaseSeat(screeningId, seatId);
+        }
+        return succeeded;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.movieticketsystem.benchmark;
+
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.service.BookingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seat holds through BookingService: single seat, a group of seats, and many threads contending for the same seats.
+ * Every successful hold is released again so the screening never fills up.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SeatHoldBenchmark {
+
+    private static final int TOTAL_SEATS = 500;
+    private static final int GROUP_SIZE = 8;
+    // Contended holds all target the first rows, like a premiere's best seats
+    private static final int HOT_SEATS = 40;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+    private Long screeningId;
+    private List<Long> seatIds;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        bookingService = context.getBean(BookingService.class);
+        Screening screening = BenchmarkApplication.createScreening(context, TOTAL_SEATS);
+        screeningId = screening.getId();
+        seatIds = BenchmarkApplication.seatIds(context, screening);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean singleSeatHold(Cursor cursor) {
+        Long seatId = seatIds.get(cursor.next++ % TOTAL_SEATS);
+        boolean held = bookingService.reserveSeat(screeningId, seatId);
+        bookingService.releaseSeat(screeningId, seatId);
+        return held;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean groupHold(Cursor cursor) {
+        int start = (cursor.next++ * GROUP_SIZE) % (TOTAL_SEATS - GROUP_SIZE);
+        List<Long> group = seatIds.subList(start, start + GROUP_SIZE);
+        boolean held = bookingService.reserveSeats(screeningId, group);
+        for (Long seatId : group) {
+            bookingService.releaseSeat(screeningId, seatId);
+        }
+        return held;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean contendedHold() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int start = random.nextInt(HOT_SEATS - 1);
+        List<Long> pair = seatIds.subList(start, start + 2);
+        boolean held = bookingService.reserveSeats(screeningId, pair);
+        if (held) {
+            for (Long seatId : pair) {
+                bookingService.releaseSeat(screeningId, seatId);
+            }
+        }
+        return held;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.movieticketsystem.benchmark;
+
+import com.example.movieticketsystem.dto.SeatMapSeat;
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.SeatReservation;
+import com.example.movieticketsystem.service.BookingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Data preparation for the seat-selection page: the in-memory seat map
+ * versus loading reservation entities and grouping them by row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SeatMapBenchmark {
+
+    private static final int TOTAL_SEATS = 300;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+    private TransactionTemplate transactionTemplate;
+    private Long screeningId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        bookingService = context.getBean(BookingService.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        Screening screening = BenchmarkApplication.createScreening(context, TOTAL_SEATS);
+        screeningId = screening.getId();
+
+        // A partly sold screening, so both paths render a mix of states
+        List<Long> seatIds = BenchmarkApplication.seatIds(context, screening);
+        bookingService.reserveSeats(screeningId, seatIds.subList(0, TOTAL_SEATS / 3));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<Integer, List<SeatMapSeat>> seatMapFromEngine() {
+        return bookingService.getSeatMap(screeningId);
+    }
+
+    @Benchmark
+    public Map<Integer, List<SeatReservation>> seatMapFromEntities() {
+        // Open session, like the web request, so the lazy seats can be loaded
+        return transactionTemplate.execute(status -> bookingService.getAvailableSeats(screeningId).stream()
+                .collect(Collectors.groupingBy(sr -> sr.getSeat().getRowNumber(), TreeMap::new, Collectors.toList())));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.movieticketsystem.benchmark;
+
+import com.example.movieticketsystem.model.BookingResult;
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.Ticket;
+import com.example.movieticketsystem.model.User;
+import com.example.movieticketsystem.service.BookingService;
+import com.example.movieticketsystem.service.ConcurrentBookingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticket issuance after payment for an order of N held seats.
+ * The tickets are canceled again afterwards so the seats can be held by the next invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TicketBenchmark {
+
+    private static final int TOTAL_SEATS = 200;
+
+    @Param({"1", "10"})
+    public int seatsPerOrder;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+    private ConcurrentBookingService concurrentBookingService;
+    private User user;
+    private Long screeningId;
+    private List<Long> seatIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        bookingService = context.getBean(BookingService.class);
+        concurrentBookingService = context.getBean(ConcurrentBookingService.class);
+        user = BenchmarkApplication.createCustomer(context);
+        Screening screening = BenchmarkApplication.createScreening(context, TOTAL_SEATS);
+        screeningId = screening.getId();
+        seatIds = BenchmarkApplication.seatIds(context, screening);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BookingResult issueTickets() throws Exception {
+        int start = (next++ * seatsPerOrder) % (TOTAL_SEATS - seatsPerOrder);
+        List<Long> order = seatIds.subList(start, start + seatsPerOrder);
+        long holdId = BookingService.newHoldId();
+        if (!bookingService.reserveSeats(screeningId, order, holdId, BookingService.newHoldExpiry())) {
+            throw new IllegalStateException("Seats not available: " + order);
+        }
+
+        BookingResult result = concurrentBookingService.createTicketsAfterPayment(screeningId, order, user, holdId).get();
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getMessage());
+        }
+        for (Ticket ticket : result.getTickets()) {
+            bookingService.cancelTicket(ticket.getId(), user.getId());
+        }
+        return result;
+    }
+}
@@ -1,3 +1,6 @@
+-- Manual setup script. The application creates and upgrades the schema itself with Flyway
+-- (src/main/resources/db/migration); keep this file in step with those migrations.
+
 -- Create database
 CREATE DATABASE IF NOT EXISTS cinema_db;
 USE cinema_db;
@@ -44,18 +47,32 @@ CREATE TABLE screenings (
     hall_number INT NOT NULL,
     price DECIMAL(10,2) NOT NULL,
     total_seats INT,
+    sparse_reservations BOOLEAN NOT NULL DEFAULT FALSE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (movie_id) REFERENCES movies(id)
 );
 
--- Create seats table
+-- Create halls table (seat template: one layout line per row, S/V/A seats and . gaps)
+CREATE TABLE halls (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    hall_number INT NOT NULL UNIQUE,
+    name VARCHAR(255),
+    layout TEXT NOT NULL,
+    seat_count INT NOT NULL
+);
+
+-- Create seats table (created once per hall; hall_id is NULL for seats made per screening before halls existed)
 CREATE TABLE seats (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     hall_number INT NOT NULL,
     row_num INT NOT NULL,
     seat_number INT NOT NULL,
-    seat_name VARCHAR(10)
+    seat_name VARCHAR(10),
+    hall_id BIGINT,
+    column_num INT,
+    seat_type VARCHAR(20) DEFAULT 'STANDARD',
+    FOREIGN KEY (hall_id) REFERENCES halls(id)
 );
 
 -- Create seat_reservations table
@@ -66,7 +83,10 @@ CREATE TABLE seat_reservations (
     is_reserved BOOLEAN DEFAULT FALSE,
     is_confirmed BOOLEAN DEFAULT FALSE,
     reservation_expiry DATETIME,
+    hold_id BIGINT,
     lock_version INT DEFAULT NULL,
+    UNIQUE KEY uk_seat_reservations_screening_seat (screening_id, seat_id),
+    INDEX idx_seat_reservations_expiry (is_confirmed, reservation_expiry),
     FOREIGN KEY (screening_id) REFERENCES screenings(id),
     FOREIGN KEY (seat_id) REFERENCES seats(id)
 );
@@ -80,11 +100,74 @@ CREATE TABLE tickets (
     purchase_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     status enum('ACTIVE','CANCELED','USED') NOT NULL,
     version BIGINT DEFAULT NULL,
+    price DECIMAL(10,2),
+    INDEX idx_tickets_user_status_time (user_id, status, purchase_time),
+    INDEX idx_tickets_screening_status (screening_id, status),
     FOREIGN KEY (user_id) REFERENCES users(id),
     FOREIGN KEY (screening_id) REFERENCES screenings(id),
     FOREIGN KEY (seat_id) REFERENCES seats(id)
 );
 
+-- Ticket id generator (ids handed out in blocks of 50 so ticket inserts can be batched)
+CREATE TABLE tickets_seq (
+    next_val BIGINT
+);
+INSERT INTO tickets_seq VALUES (1);
+
+-- Screening, seat and seat reservation id generators (blocks of 50/500/500 so bulk scheduling can batch its inserts)
+CREATE TABLE screenings_seq (
+    next_val BIGINT
+);
+INSERT INTO screenings_seq VALUES (1);
+
+CREATE TABLE seats_seq (
+    next_val BIGINT
+);
+INSERT INTO seats_seq VALUES (1);
+
+CREATE TABLE seat_reservations_seq (
+    next_val BIGINT
+);
+INSERT INTO seat_reservations_seq VALUES (1);
+
+-- Sales analytics rollups, maintained incrementally as tickets are sold and canceled
+CREATE TABLE screening_sales (
+    screening_id BIGINT PRIMARY KEY,
+    tickets_sold BIGINT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL
+);
+
+CREATE TABLE movie_daily_sales (
+    movie_id BIGINT NOT NULL,
+    sales_date DATE NOT NULL,
+    tickets_sold BIGINT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL,
+    PRIMARY KEY (movie_id, sales_date)
+);
+
+CREATE TABLE hall_daily_sales (
+    hall_number INT NOT NULL,
+    sales_date DATE NOT NULL,
+    tickets_sold BIGINT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL,
+    PRIMARY KEY (hall_number, sales_date)
+);
+
+CREATE TABLE seat_journal_checkpoints (
+    node VARCHAR(64) PRIMARY KEY,
+    applied_seq BIGINT NOT NULL
+);
+
+CREATE TABLE sales_rollup_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    screening_id BIGINT NOT NULL,
+    movie_id BIGINT NOT NULL,
+    hall_number INT NOT NULL,
+    sales_date DATE NOT NULL,
+    tickets INT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL
+);
+
 
 -- Insert default roles
 INSERT IGNORE INTO roles (name) VALUES ('ROLE_ADMIN');
@@ -0,0 +1,76 @@
+package com.example.movieticketsystem.config;
+
+import com.example.movieticketsystem.service.SeatWorkers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@Slf4j
+public class BookingConfig {
+
+    /**
+     * Single-threaded workers that apply seat changes, each screening always on the same one.
+     * Defaults to one per core: a worker mostly waits on the batched database write of its screenings.
+     */
+    @Bean
+    public SeatWorkers seatWorkers(@Value("${booking.seat-engine.workers:0}") int workers, MeterRegistry meterRegistry) {
+        int count = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        List<ExecutorService> executors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // A plain ThreadPoolExecutor, not newSingleThreadExecutor: its wrapper hides the pool from the queue gauges
+            ExecutorService executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    Thread.ofPlatform().name("seat-worker-" + i).factory());
+            // executor.* metrics tagged name=seat-worker and the worker number: time per batch and queued batches
+            executors.add(ExecutorServiceMetrics.monitor(meterRegistry, executor, "seat-worker", Tag.of("worker", String.valueOf(i))));
+        }
+        log.info("Seat workers: {}", count);
+        return new SeatWorkers(executors);
+    }
+
+    /**
+     * Executor for booking work. Booking tasks spend most of their time waiting on JDBC, so with
+     * spring.threads.virtual.enabled=true (which also moves Tomcat to virtual threads) each task
+     * gets its own virtual thread; otherwise a fixed pool of platform threads is used.
+     * Shut down by ConcurrentBookingService.
+     */
+    @Bean(destroyMethod = "")
+    public ExecutorService bookingExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                           MeterRegistry meterRegistry) {
+        ExecutorService executor;
+        if (virtualThreads) {
+            log.info("Booking executor: virtual threads");
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            int threads = Runtime.getRuntime().availableProcessors() * 2;
+            log.info("Booking executor: {} platform threads", threads);
+            executor = Executors.newFixedThreadPool(threads);
+        }
+        // executor.* metrics tagged name=booking: task time, time queued and (for the thread pool) queue depth
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "booking");
+    }
+
+    /**
+     * Admission control for booking work. Defaults to the connection pool size,
+     * since every admitted task needs a connection and more would only queue inside the pool.
+     */
+    @Bean
+    public Semaphore bookingLimiter(
+            @Value("${booking.concurrency-limit:${spring.datasource.hikari.maximum-pool-size:10}}") int limit) {
+        log.info("Booking concurrency limit: {}", limit);
+        return new Semaphore(limit, true);
+    }
+}
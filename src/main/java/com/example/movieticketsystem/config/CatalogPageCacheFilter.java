@@ -0,0 +1,148 @@
+package com.example.movieticketsystem.config;
+
+import com.example.movieticketsystem.service.CatalogChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.support.SessionFlashMapManager;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the anonymous catalog pages (home and movie list, keyed by title filter) from rendered HTML,
+ * without touching JPA or the template engine, with ETag/Last-Modified revalidation.
+ * Runs after Spring Security; pages are dropped whenever a movie or screening changes.
+ */
+@Component
+@Slf4j
+public class CatalogPageCacheFilter extends OncePerRequestFilter {
+
+    private static final Set<String> CACHED_PATHS = Set.of("/", "/movies");
+    private static final String FLASH_MAPS_ATTRIBUTE = SessionFlashMapManager.class.getName() + ".FLASH_MAPS";
+
+    private final Cache<String, CachedPage> pages;
+    // Bumped on every catalog change, so a page rendered while the change happened is not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    public CatalogPageCacheFilter(@Value("${catalog.page-cache.max-pages:500}") long maxPages,
+                                  @Value("${catalog.page-cache.ttl-seconds:300}") long ttlSeconds,
+                                  MeterRegistry meterRegistry) {
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "catalogPages");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !("GET".equals(method) || "HEAD".equals(method)) || !CACHED_PATHS.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!isAnonymous() || hasFlashAttributes(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String key = request.getServletPath() + "?title=" + Objects.toString(request.getParameter("title"), "");
+        CachedPage page = pages.getIfPresent(key);
+        if (page == null) {
+            page = render(key, request, response, chain);
+            if (page == null) {
+                return;
+            }
+        }
+        write(page, request, response);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        generation.incrementAndGet();
+        pages.invalidateAll();
+        log.debug("Catalog page cache cleared after {} {} changed", event.type().getSimpleName(), event.id());
+    }
+
+    /**
+     * Render the page through the normal MVC path and keep it if it is a plain 200 HTML page.
+     * Returns null when the response was already written and should not be cached.
+     */
+    private CachedPage render(String key, HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long renderedGeneration = generation.get();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+
+        String contentType = wrapper.getContentType();
+        boolean cacheable = wrapper.getStatus() == HttpServletResponse.SC_OK
+                && contentType != null && contentType.startsWith("text/html")
+                && !wrapper.containsHeader(HttpHeaders.SET_COOKIE);
+        if (!cacheable) {
+            wrapper.copyBodyToResponse();
+            return null;
+        }
+
+        byte[] body = wrapper.getContentAsByteArray();
+        // Last-Modified has second precision
+        long lastModified = System.currentTimeMillis() / 1000 * 1000;
+        CachedPage page = new CachedPage(body, contentType, "\"" + DigestUtils.md5DigestAsHex(body) + "\"", lastModified);
+        if (generation.get() == renderedGeneration) {
+            pages.put(key, page);
+        }
+        // The wrapper's buffer is written as the cached copy below
+        wrapper.resetBuffer();
+        return page;
+    }
+
+    private void write(CachedPage page, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Browsers must revalidate, which is answered with 304 from the cache
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (new ServletWebRequest(request, response).checkNotModified(page.etag(), page.lastModified())) {
+            return;
+        }
+        response.setContentType(page.contentType());
+        response.setContentLength(page.body().length);
+        if (!"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(page.body());
+        }
+    }
+
+    private static boolean isAnonymous() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken;
+    }
+
+    private static boolean hasFlashAttributes(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        return session != null && session.getAttribute(FLASH_MAPS_ATTRIBUTE) != null;
+    }
+
+    private record CachedPage(byte[] body, String contentType, String etag, long lastModified) {
+    }
+}
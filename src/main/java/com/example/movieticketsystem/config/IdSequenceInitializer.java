@@ -0,0 +1,61 @@
+package com.example.movieticketsystem.config;
+
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.Seat;
+import com.example.movieticketsystem.model.SeatReservation;
+import com.example.movieticketsystem.model.Ticket;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves the id sequences past the ids of rows created while those ids were AUTO_INCREMENT,
+ * so the pooled id generators never hand out an id that is already taken.
+ * On MySQL each sequence is a table emulating a sequence; databases with real sequences (H2 in tests) are skipped.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdSequenceInitializer {
+
+    private static final List<IdSequence> SEQUENCES = List.of(
+            new IdSequence("tickets", "tickets_seq", Ticket.ID_ALLOCATION_SIZE),
+            new IdSequence("screenings", "screenings_seq", Screening.ID_ALLOCATION_SIZE),
+            new IdSequence("seats", "seats_seq", Seat.ID_ALLOCATION_SIZE),
+            new IdSequence("seat_reservations", "seat_reservations_seq", SeatReservation.ID_ALLOCATION_SIZE));
+
+    private final JdbcTemplate jdbcTemplate;
+    // Depend on the entity manager factory, which starts after the Flyway migrations, so the sequence tables exist before this runs
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void alignWithExistingRows() {
+        for (IdSequence sequence : SEQUENCES) {
+            align(sequence);
+        }
+    }
+
+    private void align(IdSequence sequence) {
+        // The pooled generator may hand out ids down to next_val - allocationSize + 1
+        int headroom = sequence.allocationSize();
+        try {
+            int updated = jdbcTemplate.update(
+                    "update " + sequence.sequenceName() + " set next_val = (select max(id) from " + sequence.table() + ") + ? + 1 " +
+                            "where next_val <= (select max(id) from " + sequence.table() + ") + ?", headroom, headroom);
+            if (updated > 0) {
+                log.info("Moved {} past the existing {} ids", sequence.sequenceName(), sequence.table());
+            }
+        } catch (DataAccessException e) {
+            log.debug("{} is not a table here, nothing to align: {}", sequence.sequenceName(), e.getMessage());
+        }
+    }
+
+    private record IdSequence(String table, String sequenceName, int allocationSize) {
+    }
+}
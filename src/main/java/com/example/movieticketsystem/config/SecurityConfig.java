@@ -1,29 +1,51 @@
 package com.example.movieticketsystem.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.rememberme.TokenBasedRememberMeServices;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 @RequiredArgsConstructor
+@Slf4j
 public class SecurityConfig {
 
+    private static final String BCRYPT = "bcrypt";
+
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, TokenBasedRememberMeServices rememberMeServices) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)  // For simplicity in this example
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/", "/login", "/register", "/static/**", "/js/**", "/css/**", "/images/**", "/uploads/movies/**", "/error").permitAll()
-                        .requestMatchers("/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Danh sách phim xem được khi chưa đăng nhập (trang được cache, xem CatalogPageCacheFilter)
+                        .requestMatchers(HttpMethod.GET, "/movies").permitAll()
+                        .requestMatchers("/admin/**", "/actuator/**").hasRole("ADMIN")
                         .requestMatchers("/customer/**", "/booking/**").hasRole("CUSTOMER")
                         .anyRequest().authenticated()
                 )
@@ -32,6 +54,8 @@ public class SecurityConfig {
                         .defaultSuccessUrl("/", true)
                         .permitAll()
                 )
+                // "Remember me" on the login form: a signed cookie signs the customer back in without checking the password again
+                .rememberMe(rememberMe -> rememberMe.rememberMeServices(rememberMeServices))
                 .logout(logout -> logout
                         .logoutSuccessUrl("/")
                         .permitAll()
@@ -40,8 +64,57 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * BCrypt at the configured cost; sign-in checks run on a bounded executor (see BoundedPasswordEncoder).
+     * New hashes are stored as {bcrypt}...; a hash at another cost, or without the prefix, is re-hashed
+     * at the user's next sign-in (UserService.updatePassword).
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength,
+                                           @Value("${security.login.threads:0}") int threads,
+                                           @Value("${security.login.queue-capacity:200}") int queueCapacity,
+                                           @Value("${security.login.timeout-ms:10000}") long timeoutMillis,
+                                           MeterRegistry meterRegistry) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength) {
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                // $2a$10$...: re-hash when the cost differs either way, not only when it is lower
+                return encodedPassword != null && encodedPassword.length() > 6
+                        && !encodedPassword.startsWith(String.format("$%02d$", strength), 3);
+            }
+        };
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(BCRYPT, Map.of(BCRYPT, bcrypt));
+        // Hashes stored before the prefix was used (e.g. the default admin) are plain bcrypt
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        // Half the cores by default, so a login burst leaves the rest to booking
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), Thread.ofPlatform().name("password-hash-", 0).daemon(true).factory());
+        log.info("Password hashing: bcrypt cost {}, {} threads, queue of {}", strength, poolSize, queueCapacity);
+        // executor.* metrics tagged name=login: hashing time, time queued and queue depth
+        ExecutorService monitored = ExecutorServiceMetrics.monitor(meterRegistry, executor, "login");
+        return new BoundedPasswordEncoder(delegating, monitored, timeoutMillis);
+    }
+
+    /**
+     * Signed remember-me cookie: username, expiry and a SHA-256 signature over them, the password hash and the key.
+     * Checked without bcrypt; a new password hash invalidates it
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public TokenBasedRememberMeServices rememberMeServices(UserDetailsService userDetailsService,
+                                                           @Value("${security.remember-me.key:}") String key,
+                                                           @Value("${security.remember-me.validity-days:14}") int validityDays) {
+        if (key.isBlank()) {
+            // Cookies then only work on this node and until it restarts
+            log.warn("security.remember-me.key is not set, using a random key; set it when running more than one node");
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            key = Base64.getEncoder().encodeToString(random);
+        }
+        TokenBasedRememberMeServices services = new TokenBasedRememberMeServices(key, userDetailsService,
+                TokenBasedRememberMeServices.RememberMeTokenAlgorithm.SHA256);
+        services.setTokenValiditySeconds((int) TimeUnit.DAYS.toSeconds(validityDays));
+        return services;
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,27 @@
 package com.example.movieticketsystem.controller;
 
 import com.example.movieticketsystem.dto.ScreeningCreateDTO;
+import com.example.movieticketsystem.dto.ScreeningScheduleDTO;
+import com.example.movieticketsystem.dto.ScreeningScheduleResult;
+import com.example.movieticketsystem.dto.TicketReportFilter;
+import com.example.movieticketsystem.model.Hall;
 import com.example.movieticketsystem.model.Movie;
 import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.Ticket;
+import com.example.movieticketsystem.service.HallService;
 import com.example.movieticketsystem.service.MovieService;
+import com.example.movieticketsystem.service.SalesRollupService;
+import com.example.movieticketsystem.service.ScreeningScheduler;
 import com.example.movieticketsystem.service.ScreeningService;
 import com.example.movieticketsystem.service.SeatService;
 import com.example.movieticketsystem.service.TicketService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -20,6 +33,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
@@ -33,6 +47,9 @@ public class AdminController {
     private final ScreeningService screeningService;
     private final SeatService seatService;
     private final TicketService ticketService;
+    private final SalesRollupService salesRollupService;
+    private final ScreeningScheduler screeningScheduler;
+    private final HallService hallService;
     
     private static final String UPLOAD_DIR = "src/main/resources/static/uploads/movies/";
 
@@ -165,11 +182,58 @@ public class AdminController {
         return "redirect:/admin/dashboard";
     }
 
+    // Hall management: each hall's seat template is shared by all of its screenings
+    @GetMapping("/halls")
+    public String listHalls(Model model) {
+        model.addAttribute("halls", hallService.findAllHalls());
+        return "admin/halls";
+    }
+
+    @GetMapping("/halls/add")
+    public String showAddHallForm(Model model) {
+        Hall hall = new Hall();
+        hall.setLayout(HallService.defaultLayout(100));
+        model.addAttribute("hall", hall);
+        model.addAttribute("layoutLocked", false);
+        return "admin/hall-form";
+    }
+
+    @GetMapping("/halls/edit/{id}")
+    public String showEditHallForm(@PathVariable Long id, Model model) {
+        Optional<Hall> hall = hallService.findHallById(id);
+        if (hall.isEmpty()) {
+            return "redirect:/admin/halls";
+        }
+        model.addAttribute("hall", hall.get());
+        model.addAttribute("layoutLocked", hallService.isInUse(hall.get()));
+        return "admin/hall-form";
+    }
+
+    @PostMapping({"/halls/add", "/halls/edit/{id}"})
+    public String saveHall(@ModelAttribute("hall") Hall hall, BindingResult result,
+                           Model model, RedirectAttributes redirectAttributes) {
+        if (hall.getNumber() == null || hall.getNumber() < 1) {
+            result.rejectValue("number", "error.hall", "Hall number must be a positive number");
+        }
+        if (!result.hasErrors()) {
+            try {
+                Hall saved = hallService.saveHall(hall);
+                redirectAttributes.addFlashAttribute("success",
+                        "Hall " + saved.getNumber() + " saved with " + saved.getSeatCount() + " seats.");
+                return "redirect:/admin/halls";
+            } catch (IllegalArgumentException e) {
+                result.rejectValue("layout", "error.hall", e.getMessage());
+            }
+        }
+        model.addAttribute("layoutLocked", hallService.isInUse(hall));
+        return "admin/hall-form";
+    }
+
     // Screening management
     @GetMapping("/screenings/add")
     public String showAddScreeningForm(Model model) {
         model.addAttribute("screeningDTO", new ScreeningCreateDTO());
-        model.addAttribute("movies", movieService.findAllMovies());
+        addScreeningFormOptions(model);
         return "admin/screening-form";
     }
 
@@ -177,7 +241,7 @@ public class AdminController {
     public String addScreening(@Valid @ModelAttribute("screeningDTO") ScreeningCreateDTO screeningDTO,
                                BindingResult result, Model model) {
         if (result.hasErrors()) {
-            model.addAttribute("movies", movieService.findAllMovies());
+            addScreeningFormOptions(model);
             return "admin/screening-form";
         }
 
@@ -188,7 +252,7 @@ public class AdminController {
 
             if (movieOpt.isEmpty()) {
                 result.rejectValue("movieId", "error.screening", "Movie not found");
-                model.addAttribute("movies", movieService.findAllMovies());
+                addScreeningFormOptions(model);
                 return "admin/screening-form";
             }
 
@@ -218,11 +282,44 @@ public class AdminController {
 
             // Add error message
             model.addAttribute("error", "An error occurred: " + e.getMessage());
-            model.addAttribute("movies", movieService.findAllMovies());
+            addScreeningFormOptions(model);
             return "admin/screening-form";
         }
     }
 
+    // Bulk scheduling: a movie in several halls at several show times every day of a period
+    @GetMapping("/screenings/schedule")
+    public String showScheduleScreeningsForm(Model model) {
+        ScreeningScheduleDTO scheduleDTO = new ScreeningScheduleDTO();
+        scheduleDTO.setFromDate(LocalDate.now().plusDays(1));
+        scheduleDTO.setToDate(LocalDate.now().plusDays(7));
+        model.addAttribute("scheduleDTO", scheduleDTO);
+        model.addAttribute("movies", movieService.findAllMovies());
+        return "admin/screening-schedule-form";
+    }
+
+    @PostMapping("/screenings/schedule")
+    public String scheduleScreenings(@Valid @ModelAttribute("scheduleDTO") ScreeningScheduleDTO scheduleDTO,
+                                     BindingResult result, Model model, RedirectAttributes redirectAttributes) {
+        if (!result.hasErrors()) {
+            try {
+                ScreeningScheduleResult scheduled = screeningScheduler.schedule(scheduleDTO);
+                redirectAttributes.addFlashAttribute("success", String.format(
+                        "Scheduled %d screenings with %d seat reservations in %d ms (%d rows/sec).",
+                        scheduled.getScreenings(), scheduled.getSeatReservations(), scheduled.getElapsedMillis(), scheduled.getRowsPerSecond()));
+                return "redirect:/admin/dashboard";
+            } catch (IllegalArgumentException e) {
+                result.reject("error.schedule", e.getMessage());
+            } catch (DataAccessException e) {
+                // A conflicting change to the same halls (hall created twice, lock timeout): nothing was written
+                result.reject("error.schedule",
+                        "The halls were changed by another request while scheduling. Nothing was created, please try again.");
+            }
+        }
+        model.addAttribute("movies", movieService.findAllMovies());
+        return "admin/screening-schedule-form";
+    }
+
     @GetMapping("/screenings/edit/{id}")
     public String showEditScreeningForm(@PathVariable Long id, Model model, RedirectAttributes redirectAttributes) {
         Optional<Screening> screeningOpt = screeningService.findScreeningById(id);
@@ -249,7 +346,7 @@ public class AdminController {
         screeningDTO.setPrice(screening.getPrice());
 
         model.addAttribute("screeningDTO", screeningDTO);
-        model.addAttribute("movies", movieService.findAllMovies());
+        addScreeningFormOptions(model);
         return "admin/screening-form";
     }
 
@@ -258,7 +355,7 @@ public class AdminController {
                                   @Valid @ModelAttribute("screeningDTO") ScreeningCreateDTO screeningDTO,
                                   BindingResult result, Model model, RedirectAttributes redirectAttributes) {
         if (result.hasErrors()) {
-            model.addAttribute("movies", movieService.findAllMovies());
+            addScreeningFormOptions(model);
             return "admin/screening-form";
         }
 
@@ -274,7 +371,7 @@ public class AdminController {
             Optional<Movie> movieOpt = movieService.findMovieById(screeningDTO.getMovieId());
             if (movieOpt.isEmpty()) {
                 result.rejectValue("movieId", "error.screening", "Movie not found");
-                model.addAttribute("movies", movieService.findAllMovies());
+                addScreeningFormOptions(model);
                 return "admin/screening-form";
             }
 
@@ -313,6 +410,11 @@ public class AdminController {
         }
     }
 
+    private void addScreeningFormOptions(Model model) {
+        model.addAttribute("movies", movieService.findAllMovies());
+        model.addAttribute("halls", hallService.findAllHalls());
+    }
+
     @GetMapping("/screenings/delete/{id}")
     public String deleteScreening(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
@@ -335,8 +437,52 @@ public class AdminController {
 
     // Reports section
     @GetMapping("/reports/tickets")
-    public String ticketReports(Model model) {
-        model.addAttribute("tickets", ticketService.findAllTickets());
+    public String ticketReports(@ModelAttribute("filter") TicketReportFilter filter,
+                                @RequestParam(required = false) Long before,
+                                @RequestParam(defaultValue = "50") int size,
+                                Model model) {
+        model.addAttribute("page", ticketService.findReportPage(filter, before, size));
+        model.addAttribute("size", size);
+        model.addAttribute("movies", movieService.findAllMovies());
+        model.addAttribute("statuses", Ticket.TicketStatus.values());
         return "admin/ticket-reports";
     }
-}
\ No newline at end of file
+
+    // Streams all matching tickets as CSV (default) or NDJSON (format=ndjson)
+    @GetMapping("/reports/tickets/export")
+    public void exportTickets(@ModelAttribute TicketReportFilter filter,
+                              @RequestParam(defaultValue = "csv") String format,
+                              HttpServletResponse response) throws IOException {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        response.setContentType(ndjson ? "application/x-ndjson" : "text/csv");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(ndjson ? "tickets.ndjson" : "tickets.csv")
+                .build().toString());
+        ticketService.exportTickets(filter, ndjson, response.getOutputStream());
+    }
+
+    // Sales analytics, read from the rollup tables only.
+    // Defaults to the last 30 days plus the coming week, so upcoming screenings show their occupancy
+    @GetMapping("/reports/sales")
+    public String salesReport(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                              Model model) {
+        LocalDate end = to != null ? to : LocalDate.now().plusDays(7);
+        LocalDate start = from != null ? from : LocalDate.now().minusDays(29);
+        model.addAttribute("from", start);
+        model.addAttribute("to", end);
+        model.addAttribute("movieTotals", salesRollupService.findMovieTotals(start, end));
+        model.addAttribute("hallTotals", salesRollupService.findHallTotals(start, end));
+        model.addAttribute("dailyTotals", salesRollupService.findDailyTotals(start, end));
+        model.addAttribute("screenings", salesRollupService.findScreeningOccupancy(start, end));
+        return "admin/sales-report";
+    }
+
+    @PostMapping("/reports/sales/rebuild")
+    public String rebuildSalesReport(RedirectAttributes redirectAttributes) {
+        salesRollupService.rebuild();
+        redirectAttributes.addFlashAttribute("success", "Sales analytics have been recomputed from all tickets.");
+        return "redirect:/admin/reports/sales";
+    }
+}
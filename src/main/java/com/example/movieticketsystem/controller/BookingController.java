@@ -1,27 +1,34 @@
 package com.example.movieticketsystem.controller;
 
+import com.example.movieticketsystem.dto.BookingHold;
 import com.example.movieticketsystem.dto.BookingRequest;
+import com.example.movieticketsystem.dto.QueueStatus;
+import com.example.movieticketsystem.dto.SeatMapSeat;
 import com.example.movieticketsystem.model.*;
 import com.example.movieticketsystem.service.BookingService;
+import com.example.movieticketsystem.service.HoldTokenService;
 import com.example.movieticketsystem.service.ScreeningService;
 import com.example.movieticketsystem.service.SeatService;
 import com.example.movieticketsystem.service.UserService;
 import com.example.movieticketsystem.service.ConcurrentBookingService;
+import com.example.movieticketsystem.service.SeatEventHub;
+import com.example.movieticketsystem.service.WaitingRoom;
 
-import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -39,21 +46,21 @@ public class BookingController {
     private final BookingService bookingService;
     private final UserService userService;
     private final ConcurrentBookingService concurrentBookingService;
+    private final SeatEventHub seatEventHub;
+    private final HoldTokenService holdTokenService;
+    private final WaitingRoom waitingRoom;
 
     @GetMapping("/screening/{id}")
-    public String showSeatSelection(@PathVariable Long id, Model model, HttpSession session) {
-        // If there are previously selected seats in session, release them
-        @SuppressWarnings("unchecked")
-        List<Long> previouslySelectedSeatIds = (List<Long>) session.getAttribute("seatIds");
-        Long previousScreeningId = (Long) session.getAttribute("screeningId");
-        
-        if (previouslySelectedSeatIds != null && previousScreeningId != null) {
-            for (Long seatId : previouslySelectedSeatIds) {
-                bookingService.releaseSeat(previousScreeningId, seatId);
+    public String showSeatSelection(@PathVariable Long id,
+                                    @AuthenticationPrincipal AuthenticatedUser principal,
+                                    Model model) {
+        // During an on-sale rush customers wait their turn here, without loading anything from the database
+        if (principal != null) {
+            QueueStatus queue = waitingRoom.enter(id, principal.getId());
+            if (!queue.isAdmitted()) {
+                model.addAttribute("queue", queue);
+                return "customer/waiting-room";
             }
-            // Clear the session attributes
-            session.removeAttribute("seatIds");
-            session.removeAttribute("screeningId");
         }
 
         Optional<Screening> screening = screeningService.findScreeningById(id);
@@ -62,16 +69,8 @@ public class BookingController {
             return "redirect:/movies";
         }
 
-        // Get available seats
-        List<SeatReservation> availableSeats = bookingService.getAvailableSeats(id);
-
-        // Group seats by row using TreeMap to maintain row order
-        Map<Integer, List<SeatReservation>> seatsByRow = availableSeats.stream()
-                .collect(Collectors.groupingBy(
-                    sr -> sr.getSeat().getRowNumber(),
-                    TreeMap::new,
-                    Collectors.toList()
-                ));
+        // Seats already grouped by row and ordered, served from memory
+        Map<Integer, List<SeatMapSeat>> seatsByRow = bookingService.getSeatMap(id);
 
         model.addAttribute("screening", screening.get());
         model.addAttribute("seatRows", seatsByRow);
@@ -79,12 +78,32 @@ public class BookingController {
         return "customer/seat-selection";
     }
 
+    @GetMapping("/screening/{id}/seats")
+    @ResponseBody
+    public Map<Integer, List<SeatMapSeat>> getSeatMap(@PathVariable Long id) {
+        return bookingService.getSeatMap(id);
+    }
+
+    /**
+     * Place in the waiting room, polled by the waiting page until the customer is admitted
+     */
+    @GetMapping("/screening/{id}/queue")
+    @ResponseBody
+    public QueueStatus getQueueStatus(@PathVariable Long id, @AuthenticationPrincipal AuthenticatedUser principal) {
+        return waitingRoom.enter(id, principal.getId());
+    }
+
+    @GetMapping(value = "/screening/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamSeatEvents(@PathVariable Long id) {
+        return seatEventHub.subscribe(id);
+    }
+
     @PostMapping("/reserve")
     public String reserveSeats(@RequestParam("screeningId") Long screeningId,
                                @RequestParam("seatIds") String seatIds,
-                               Authentication authentication,
-                               RedirectAttributes redirectAttributes,
-                               HttpSession session) {
+                               @AuthenticationPrincipal AuthenticatedUser principal,
+                               RedirectAttributes redirectAttributes) {
 
         try {
             // Parse seat IDs from comma-separated string
@@ -97,16 +116,21 @@ public class BookingController {
                 return "redirect:/booking/screening/" + screeningId;
             }
 
-            String username = authentication.getName();
-            Optional<User> user = userService.findByUsername(username);
-
-            if (user.isEmpty()) {
+            if (principal == null) {
                 return "redirect:/login";
             }
+            // Not admitted from the waiting room yet: back to the queue, nothing reaches the booking executor
+            if (!waitingRoom.admit(screeningId, principal.getId())) {
+                redirectAttributes.addFlashAttribute("error", "Please wait for your turn to select seats.");
+                return "redirect:/booking/screening/" + screeningId;
+            }
+            // The signed-in user's id is in the principal, no need to load the user
+            User user = userService.getReference(principal.getId());
 
-
+            long holdId = BookingService.newHoldId();
+            LocalDateTime holdExpiry = BookingService.newHoldExpiry();
             CompletableFuture<BookingResult> bookingFuture = 
-                concurrentBookingService.reserveSeatsAsync(screeningId, selectedSeatIds, user.get());
+                concurrentBookingService.reserveSeatsAsync(screeningId, selectedSeatIds, user, holdId, holdExpiry);
 
             // Đợi kết quả với timeout
             BookingResult result = bookingFuture.get(15, TimeUnit.SECONDS);
@@ -116,9 +140,9 @@ public class BookingController {
                 return "redirect:/booking/screening/" + screeningId;
             }
 
-            // Store booking details in session for the confirmation step
-            session.setAttribute("screeningId", screeningId);
-            session.setAttribute("seatIds", selectedSeatIds);
+            // The held seats travel to the next steps in a signed token, valid as long as the hold
+            String holdToken = holdTokenService.issue(new BookingHold(screeningId, selectedSeatIds, principal.getId(), holdId, holdExpiry));
+            redirectAttributes.addAttribute("hold", holdToken);
 
             return "redirect:/booking/confirm";
 
@@ -139,14 +163,15 @@ public class BookingController {
     }
 
     @GetMapping("/confirm")
-    public String showConfirmation(HttpSession session, Model model) {
-        Long screeningId = (Long) session.getAttribute("screeningId");
-        @SuppressWarnings("unchecked")
-        List<Long> seatIds = (List<Long>) session.getAttribute("seatIds");
-
-        if (screeningId == null || seatIds == null || seatIds.isEmpty()) {
+    public String showConfirmation(@RequestParam(value = "hold", required = false) String holdToken,
+                                   @AuthenticationPrincipal AuthenticatedUser principal,
+                                   Model model) {
+        Optional<BookingHold> hold = findHold(holdToken, principal);
+        if (hold.isEmpty()) {
             return "redirect:/movies";
         }
+        Long screeningId = hold.get().getScreeningId();
+        List<Long> seatIds = hold.get().getSeatIds();
 
         Optional<Screening> screening = screeningService.findScreeningById(screeningId);
         if (screening.isEmpty()) {
@@ -166,34 +191,50 @@ public class BookingController {
         model.addAttribute("screening", screening.get());
         model.addAttribute("seats", seats);
         model.addAttribute("totalPrice", seats.size() * screening.get().getPrice().doubleValue());
+        model.addAttribute("holdToken", holdToken);
 
         return "customer/confirmation";
     }
 
+    /**
+     * Back from the confirmation page: release the seats held there and return to the seat selection
+     */
+    @PostMapping("/release")
+    public String releaseHold(@RequestParam(value = "hold", required = false) String holdToken,
+                              @AuthenticationPrincipal AuthenticatedUser principal) {
+        Optional<BookingHold> hold = findHold(holdToken, principal);
+        if (hold.isEmpty()) {
+            return "redirect:/movies";
+        }
+
+        for (Long seatId : hold.get().getSeatIds()) {
+            bookingService.releaseHold(hold.get().getScreeningId(), seatId, hold.get().getHoldId());
+        }
+        return "redirect:/booking/screening/" + hold.get().getScreeningId();
+    }
+
     @PostMapping("/complete")
-    public String completeBooking(Authentication authentication,
-                                  HttpSession session,
+    public String completeBooking(@RequestParam(value = "hold", required = false) String holdToken,
+                                  @AuthenticationPrincipal AuthenticatedUser principal,
                                   RedirectAttributes redirectAttributes) {
 
-        String username = authentication.getName();
-        Optional<User> user = userService.findByUsername(username);
-
-        if (user.isEmpty()) {
+        if (principal == null) {
             return "redirect:/login";
         }
 
-        Long screeningId = (Long) session.getAttribute("screeningId");
-        @SuppressWarnings("unchecked")
-        List<Long> seatIds = (List<Long>) session.getAttribute("seatIds");
-
-        if (screeningId == null || seatIds == null || seatIds.isEmpty()) {
+        Optional<BookingHold> hold = holdTokenService.verify(holdToken, principal.getId());
+        if (hold.isEmpty()) {
+            redirectAttributes.addFlashAttribute("error", "Your seat hold has expired. Please select your seats again.");
             return "redirect:/movies";
         }
+        Long screeningId = hold.get().getScreeningId();
+        List<Long> seatIds = hold.get().getSeatIds();
 
         try {
             // Tạo vé sau khi thanh toán thành công
             CompletableFuture<BookingResult> ticketsFuture = 
-                concurrentBookingService.createTicketsAfterPayment(screeningId, seatIds, user.get());
+                concurrentBookingService.createTicketsAfterPayment(screeningId, seatIds,
+                        userService.getReference(principal.getId()), hold.get().getHoldId());
             
             BookingResult result = ticketsFuture.get(15, TimeUnit.SECONDS);
 
@@ -202,10 +243,6 @@ public class BookingController {
                 return "redirect:/booking/screening/" + screeningId;
         }
 
-        // Clear session data
-        session.removeAttribute("screeningId");
-        session.removeAttribute("seatIds");
-
         redirectAttributes.addFlashAttribute("success",
                     "Your booking is complete! " + result.getTickets().size() + " tickets have been issued.");
         return "redirect:/customer/tickets";
@@ -226,20 +263,27 @@ public class BookingController {
         }
     }
 
+    /**
+     * The hold in the token, if it is valid and belongs to the signed-in user
+     */
+    private Optional<BookingHold> findHold(String holdToken, AuthenticatedUser principal) {
+        if (holdToken == null || principal == null) {
+            return Optional.empty();
+        }
+        return holdTokenService.verify(holdToken, principal.getId());
+    }
+
     @PostMapping("/cancel/{id}")
     public String cancelBooking(@PathVariable Long id,
-                                Authentication authentication,
+                                @AuthenticationPrincipal AuthenticatedUser principal,
                                 RedirectAttributes redirectAttributes) {
 
-        String username = authentication.getName();
-        Optional<User> user = userService.findByUsername(username);
-
-        if (user.isEmpty()) {
+        if (principal == null) {
             return "redirect:/login";
         }
 
         try {
-            boolean canceled = bookingService.cancelTicket(id, user.get().getId());
+            boolean canceled = bookingService.cancelTicket(id, principal.getId());
 
             if (!canceled) {
                 redirectAttributes.addFlashAttribute("error",
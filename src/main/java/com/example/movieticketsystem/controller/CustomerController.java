@@ -1,25 +1,22 @@
 package com.example.movieticketsystem.controller;
 
+import com.example.movieticketsystem.model.AuthenticatedUser;
 import com.example.movieticketsystem.model.Ticket;
-import com.example.movieticketsystem.model.User;
 import com.example.movieticketsystem.service.BookingService;
-import com.example.movieticketsystem.service.UserService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 
 import java.util.List;
-import java.util.Optional;
 
 @Controller
 @RequestMapping("/customer")
 @RequiredArgsConstructor
 public class CustomerController {
 
-    private final UserService userService;
     private final BookingService bookingService;
 
     @GetMapping("/dashboard")
@@ -28,30 +25,24 @@ public class CustomerController {
     }
 
     @GetMapping("/tickets")
-    public String viewTickets(Authentication authentication, Model model) {
-        String username = authentication.getName();
-        Optional<User> user = userService.findByUsername(username);
-
-        if (user.isEmpty()) {
+    public String viewTickets(@AuthenticationPrincipal AuthenticatedUser principal, Model model) {
+        if (principal == null) {
             return "redirect:/login";
         }
 
-        List<Ticket> activeTickets = bookingService.getUserActiveTickets(user.get().getId());
+        List<Ticket> activeTickets = bookingService.getUserActiveTickets(principal.getId());
         model.addAttribute("tickets", activeTickets);
 
         return "customer/tickets";
     }
 
     @GetMapping("/history")
-    public String viewBookingHistory(Authentication authentication, Model model) {
-        String username = authentication.getName();
-        Optional<User> user = userService.findByUsername(username);
-
-        if (user.isEmpty()) {
+    public String viewBookingHistory(@AuthenticationPrincipal AuthenticatedUser principal, Model model) {
+        if (principal == null) {
             return "redirect:/login";
         }
 
-        List<Ticket> allTickets = bookingService.getAllTicketsForUser(user.get().getId());
+        List<Ticket> allTickets = bookingService.getAllTicketsForUser(principal.getId());
         model.addAttribute("tickets", allTickets);
 
         return "customer/booking-history";
@@ -0,0 +1,25 @@
+package com.example.movieticketsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Seats held by a user between the reserve and complete steps of a booking, carried in a signed hold token
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingHold {
+
+    private Long screeningId;
+    private List<Long> seatIds;
+    private Long userId;
+    // Id of the seat hold: confirming and releasing the seats go by it (see SeatStateEngine#releaseHold)
+    private Long holdId;
+    // Expiry of the seat hold itself, which is also how long the token is valid
+    private LocalDateTime holdExpiry;
+}
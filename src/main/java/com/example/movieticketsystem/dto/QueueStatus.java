@@ -0,0 +1,22 @@
+package com.example.movieticketsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A customer's place in the waiting room of a screening (see WaitingRoom)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueStatus {
+
+    private Long screeningId;
+    // True once the customer may select and reserve seats
+    private boolean admitted;
+    // Customers still ahead, 0 when admitted
+    private long position;
+    // Estimated wait in seconds at the current admission rate
+    private long etaSeconds;
+}
@@ -0,0 +1,20 @@
+package com.example.movieticketsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Tickets sold and revenue of one group (a movie, a hall or a day) in the sales analytics
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesTotal {
+
+    private String label;
+    private Long ticketsSold;
+    private BigDecimal revenue;
+}
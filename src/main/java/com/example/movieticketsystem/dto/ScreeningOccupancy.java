@@ -0,0 +1,35 @@
+package com.example.movieticketsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Sales and occupancy of one screening in the sales analytics
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScreeningOccupancy {
+
+    private Long screeningId;
+    private String movieTitle;
+    private LocalDateTime startTime;
+    private Integer hallNumber;
+    private Long ticketsSold;
+    private Integer totalSeats;
+    private BigDecimal revenue;
+
+    /**
+     * Percentage of seats sold, null when the screening has no seat count
+     */
+    public Double getOccupancy() {
+        if (totalSeats == null || totalSeats == 0) {
+            return null;
+        }
+        return ticketsSold * 100.0 / totalSeats;
+    }
+}
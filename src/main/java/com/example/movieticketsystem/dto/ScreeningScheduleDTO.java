@@ -0,0 +1,72 @@
+package com.example.movieticketsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import jakarta.validation.constraints.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bulk scheduling request: one screening of the movie in every hall at every show time of every day in the range
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScreeningScheduleDTO {
+
+    private static final DateTimeFormatter SHOW_TIME_FORMAT = DateTimeFormatter.ofPattern("H:mm");
+
+    @NotNull(message = "Movie is required")
+    private Long movieId;
+
+    @NotNull(message = "First day is required")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate fromDate;
+
+    @NotNull(message = "Last day is required")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate toDate;
+
+    @NotBlank(message = "At least one hall is required")
+    @Pattern(regexp = "\\s*[1-9]\\d*(\\s*,\\s*[1-9]\\d*)*\\s*", message = "Halls must be hall numbers separated by commas, e.g. 1, 2, 5")
+    private String halls;
+
+    @NotBlank(message = "At least one show time is required")
+    @Pattern(regexp = "\\s*([01]?\\d|2[0-3]):[0-5]\\d(\\s*,\\s*([01]?\\d|2[0-3]):[0-5]\\d)*\\s*",
+            message = "Show times must be times separated by commas, e.g. 10:00, 13:30, 20:45")
+    private String showTimes;
+
+    @NotNull(message = "Price is required")
+    @DecimalMin(value = "0.01", message = "Price must be at least 0.01")
+    @Digits(integer = 8, fraction = 2, message = "Price cannot exceed 8 digits in integer part and 2 digits in fraction part")
+    private BigDecimal price;
+
+    @Min(value = 1, message = "Total number of seats must be at least 1")
+    @Max(value = 1000, message = "Total number of seats cannot exceed 1000")
+    private Integer totalSeats = 100;
+
+    public List<Integer> getHallNumbers() {
+        return Arrays.stream(halls.split(","))
+                .map(String::trim)
+                .map(Integer::valueOf)
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    public List<LocalTime> getShowTimeList() {
+        return Arrays.stream(showTimes.split(","))
+                .map(String::trim)
+                .map(time -> LocalTime.parse(time, SHOW_TIME_FORMAT))
+                .distinct()
+                .sorted()
+                .toList();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.movieticketsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Rows written by a bulk scheduling run and how long it took, including the commit
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScreeningScheduleResult {
+
+    private int screenings;
+    private long seatReservations;
+    private long elapsedMillis;
+
+    public long getRows() {
+        return screenings + seatReservations;
+    }
+
+    public long getRowsPerSecond() {
+        return getRows() * 1000 / Math.max(1, elapsedMillis);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.movieticketsystem.dto;
+
+import com.example.movieticketsystem.model.Seat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One seat of the seat-selection page: layout plus current state
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMapSeat {
+
+    private Long seatId;
+    private Integer rowNumber;
+    private Integer seatNumber;
+    private String seatName;
+    // Position in the row counting aisles and gaps
+    private Integer columnNumber;
+    private Seat.SeatType seatType;
+    private State state;
+
+    public boolean isReserved() {
+        return state != State.AVAILABLE;
+    }
+
+    // Row letters of the seat name (A12 -> A, AB3 -> AB)
+    public String getRowLabel() {
+        return seatName != null ? seatName.replaceAll("\\d+$", "") : String.valueOf(rowNumber);
+    }
+
+    public enum State {
+        AVAILABLE,
+        HELD,
+        SOLD
+    }
+}
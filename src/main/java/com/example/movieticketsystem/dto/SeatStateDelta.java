@@ -0,0 +1,17 @@
+package com.example.movieticketsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A seat whose state changed, pushed to clients watching the seat map
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatStateDelta {
+
+    private Long seatId;
+    private SeatMapSeat.State state;
+}
@@ -0,0 +1,32 @@
+package com.example.movieticketsystem.dto;
+
+import com.example.movieticketsystem.model.Seat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a seat reservation row joined with its seat,
+ * containing only what the seat state engine needs
+ */
+public interface SeatStateView {
+
+    Long getSeatId();
+
+    Integer getRowNumber();
+
+    Integer getSeatNumber();
+
+    String getSeatName();
+
+    Integer getColumnNumber();
+
+    Seat.SeatType getSeatType();
+
+    boolean isReserved();
+
+    boolean isConfirmed();
+
+    LocalDateTime getReservationExpiry();
+
+    Long getHoldId();
+}
@@ -0,0 +1,31 @@
+package com.example.movieticketsystem.dto;
+
+import com.example.movieticketsystem.model.Ticket;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of the admin ticket report and export; every field is optional.
+ * The purchase date range is inclusive on both ends.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketReportFilter {
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    private Long screeningId;
+
+    private Long movieId;
+
+    private Ticket.TicketStatus status;
+}
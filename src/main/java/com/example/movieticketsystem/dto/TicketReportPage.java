@@ -0,0 +1,20 @@
+package com.example.movieticketsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A page of the ticket report, newest tickets first.
+ * nextCursor is the ticket id to pass as "before" for the following page, null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketReportPage {
+
+    private List<TicketReportRow> rows;
+    private Long nextCursor;
+}
@@ -0,0 +1,30 @@
+package com.example.movieticketsystem.dto;
+
+import com.example.movieticketsystem.model.Ticket;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One line of the admin ticket report, read straight from the joined tables without loading entities
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketReportRow {
+
+    private Long id;
+    private LocalDateTime purchaseTime;
+    private Ticket.TicketStatus status;
+    private String username;
+    private Long movieId;
+    private String movieTitle;
+    private Long screeningId;
+    private LocalDateTime screeningStart;
+    private Integer hallNumber;
+    private String seatName;
+    private BigDecimal price;
+}
@@ -0,0 +1,23 @@
+package com.example.movieticketsystem.model;
+
+import lombok.Getter;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * The signed-in user kept in the security context. The user id and role are resolved once at login,
+ * so controllers take them from here instead of looking the user up on every request.
+ */
+@Getter
+public class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+
+    private final Long id;
+    private final String roleName;
+
+    public AuthenticatedUser(Long id, String username, String password, String roleName) {
+        super(username, password, List.of(new SimpleGrantedAuthority(roleName)));
+        this.id = id;
+        this.roleName = roleName;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.movieticketsystem.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.util.Objects;
+
+/**
+ * A cinema hall with a fixed seat template. Its seats are created once from the layout
+ * and shared by every screening in the hall; screenings only add seat reservations.
+ * <p>
+ * The layout has one line per row, front row first, one character per position:
+ * {@code S} standard seat, {@code V} VIP seat, {@code A} accessible seat, {@code .} gap (aisle or no seat).
+ */
+@Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "halls")
+@Table(name = "halls")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Hall {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Số phòng chiếu, trùng với Screening.hallNumber
+    @Column(name = "hall_number", nullable = false, unique = true)
+    private Integer number;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "layout", nullable = false, columnDefinition = "TEXT")
+    private String layout;
+
+    @Column(name = "seat_count", nullable = false)
+    private Integer seatCount;
+
+    public int getRowCount() {
+        return layout != null ? (int) layout.lines().count() : 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Hall hall = (Hall) o;
+        return id != null && Objects.equals(id, hall.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 31;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.movieticketsystem.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Rollup of the tickets sold (not canceled) per hall and purchase day, kept up to date by SalesRollupService
+ */
+@Entity
+@Table(name = "hall_daily_sales")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HallDailySales {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(name = "tickets_sold", nullable = false)
+    private long ticketsSold;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "hall_number")
+        private Integer hallNumber;
+
+        @Column(name = "sales_date")
+        private LocalDate salesDate;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.movieticketsystem.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Tickets sold (negative for cancellations) that SalesRollupService has not added to the rollups yet.
+ * Written in the same transaction as the tickets, so the rollups never miss a committed sale.
+ */
+@Entity
+@Table(name = "sales_rollup_events")
+@Getter
+@Setter
+@NoArgsConstructor
+public class SalesRollupEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "screening_id", nullable = false)
+    private Long screeningId;
+
+    @Column(name = "movie_id", nullable = false)
+    private Long movieId;
+
+    @Column(name = "hall_number", nullable = false)
+    private Integer hallNumber;
+
+    @Column(name = "sales_date", nullable = false)
+    private LocalDate salesDate;
+
+    @Column(name = "tickets", nullable = false)
+    private int tickets;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    public SalesRollupEvent(Long screeningId, Long movieId, Integer hallNumber, LocalDate salesDate,
+                            int tickets, BigDecimal revenue) {
+        this.screeningId = screeningId;
+        this.movieId = movieId;
+        this.hallNumber = hallNumber;
+        this.salesDate = salesDate;
+        this.tickets = tickets;
+        this.revenue = revenue;
+    }
+}
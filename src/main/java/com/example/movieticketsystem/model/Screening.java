@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -15,6 +17,7 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "screenings")
 @Table(name = "screenings")
 @Getter
 @Setter
@@ -22,8 +25,12 @@ import java.util.Set;
 @AllArgsConstructor
 public class Screening {
 
+    // Ids are taken from screenings_seq in blocks, so bulk scheduling can insert screenings in JDBC batches
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "screening_id")
+    @SequenceGenerator(name = "screening_id", sequenceName = "screenings_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.EAGER)
@@ -45,6 +52,10 @@ public class Screening {
     @Column(name = "total_seats")
     private Integer totalSeats;
 
+    // Sparse: seats come from the hall template and seat_reservations only has rows for seats that were held or sold
+    @Column(name = "sparse_reservations", nullable = false)
+    private boolean sparseReservations;
+
     @OneToMany(mappedBy = "screening", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<SeatReservation> seatReservations = new HashSet<>();
 
@@ -0,0 +1,31 @@
+package com.example.movieticketsystem.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Rollup of the tickets sold (not canceled) for one screening, kept up to date by SalesRollupService
+ */
+@Entity
+@Table(name = "screening_sales")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScreeningSales {
+
+    @Id
+    @Column(name = "screening_id")
+    private Long screeningId;
+
+    @Column(name = "tickets_sold", nullable = false)
+    private long ticketsSold;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+}
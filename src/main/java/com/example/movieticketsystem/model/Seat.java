@@ -5,12 +5,15 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "seats")
 @Table(name = "seats")
 @Getter
 @Setter
@@ -18,8 +21,12 @@ import java.util.Set;
 @AllArgsConstructor
 public class Seat {
 
+    // Ids are taken from seats_seq in large blocks: seats are created a whole hall at a time, in JDBC batches
+    public static final int ID_ALLOCATION_SIZE = 500;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seat_id")
+    @SequenceGenerator(name = "seat_id", sequenceName = "seats_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "hall_number", nullable = false)
@@ -34,12 +41,31 @@ public class Seat {
     @Column(name = "seat_name")
     private String seatName;
 
+    // Hall whose template this seat belongs to (null for seats created per screening before halls had templates)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "hall_id")
+    private Hall hall;
+
+    // Position in the row counting gaps (aisles), used to draw the seat map; null for seats without a template
+    @Column(name = "column_num")
+    private Integer columnNumber;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "seat_type")
+    private SeatType seatType = SeatType.STANDARD;
+
     @OneToMany(mappedBy = "seat", cascade = CascadeType.ALL)
     private Set<SeatReservation> seatReservations = new HashSet<>();
 
     @OneToMany(mappedBy = "seat", cascade = CascadeType.ALL)
     private Set<Ticket> tickets = new HashSet<>();
 
+    public enum SeatType {
+        STANDARD,
+        VIP,
+        ACCESSIBLE
+    }
+
     @Override
     public String toString() {
         return seatName != null ? seatName : "Row " + rowNumber + ", Seat " + seatNumber;
@@ -0,0 +1,26 @@
+package com.example.movieticketsystem.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Sequence up to which a node's seat journal has been applied to seat_reservations, see SeatWriteBehind
+ */
+@Entity
+@Table(name = "seat_journal_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatJournalCheckpoint {
+
+    @Id
+    @Column(name = "node", length = 64)
+    private String node;
+
+    @Column(name = "applied_seq", nullable = false)
+    private long appliedSeq;
+}
@@ -10,15 +10,22 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "seat_reservations")
+// Keys and indexes match db/migration (V2__booking_indexes.sql), so schemas generated in tests have them too
+@Table(name = "seat_reservations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_seat_reservations_screening_seat", columnNames = {"screening_id", "seat_id"}),
+        indexes = @Index(name = "idx_seat_reservations_expiry", columnList = "is_confirmed, reservation_expiry"))
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class SeatReservation {
 
+    // Ids are taken from seat_reservations_seq in large blocks: eager screenings insert one row per seat in JDBC batches
+    public static final int ID_ALLOCATION_SIZE = 500;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seat_reservation_id")
+    @SequenceGenerator(name = "seat_reservation_id", sequenceName = "seat_reservations_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -38,6 +45,10 @@ public class SeatReservation {
     @Column(name = "reservation_expiry")
     private LocalDateTime reservationExpiry;
 
+    // Hold the seat is under, see V5__seat_hold_id.sql
+    @Column(name = "hold_id")
+    private Long holdId;
+
     @Version
     @Column(name = "lock_version")
     private Integer version;
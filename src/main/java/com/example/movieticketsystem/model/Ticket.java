@@ -6,18 +6,26 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "tickets")
+// Indexes match db/migration (V2__booking_indexes.sql), so schemas generated in tests have them too
+@Table(name = "tickets", indexes = {
+        @Index(name = "idx_tickets_user_status_time", columnList = "user_id, status, purchase_time"),
+        @Index(name = "idx_tickets_screening_status", columnList = "screening_id, status")})
 @Getter
 @Setter
 @NoArgsConstructor
 public class Ticket {
 
+    // Ids are taken from tickets_seq in blocks, so a group of tickets can be inserted in one JDBC batch
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_id")
+    @SequenceGenerator(name = "ticket_id", sequenceName = "tickets_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Version
@@ -39,6 +47,10 @@ public class Ticket {
     @Column(name = "purchase_time", updatable = false)
     private LocalDateTime purchaseTime;
 
+    // Price paid, taken from the screening when the ticket was issued
+    @Column(name = "price", precision = 10, scale = 2)
+    private BigDecimal price;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false)
     private TicketStatus status = TicketStatus.ACTIVE;
@@ -0,0 +1,38 @@
+package com.example.movieticketsystem.repository;
+
+import com.example.movieticketsystem.dto.SalesTotal;
+import com.example.movieticketsystem.model.HallDailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface HallDailySalesRepository extends JpaRepository<HallDailySales, HallDailySales.Key> {
+
+    // Cộng dồn vào dòng tổng hợp; trả về 0 nếu dòng chưa tồn tại
+    @Modifying
+    @Query("update HallDailySales s set s.ticketsSold = s.ticketsSold + :tickets, s.revenue = s.revenue + :revenue " +
+            "where s.id.hallNumber = :hallNumber and s.id.salesDate = :salesDate")
+    int addSales(@Param("hallNumber") Integer hallNumber,
+                 @Param("salesDate") LocalDate salesDate,
+                 @Param("tickets") long tickets,
+                 @Param("revenue") BigDecimal revenue);
+
+    @Modifying
+    @Query(value = "insert into hall_daily_sales (hall_number, sales_date, tickets_sold, revenue) " +
+            "select s.hall_number, cast(t.purchase_time as date), count(*), sum(coalesce(t.price, s.price)) " +
+            "from tickets t join screenings s on s.id = t.screening_id " +
+            "where t.status <> 'CANCELED' group by s.hall_number, cast(t.purchase_time as date)", nativeQuery = true)
+    int rebuildFromTickets();
+
+    @Query("select new com.example.movieticketsystem.dto.SalesTotal(concat('Hall ', cast(s.id.hallNumber as String)), sum(s.ticketsSold), sum(s.revenue)) " +
+            "from HallDailySales s where s.id.salesDate between :from and :to " +
+            "group by s.id.hallNumber order by s.id.hallNumber")
+    List<SalesTotal> findHallTotals(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,30 @@
+package com.example.movieticketsystem.repository;
+
+import com.example.movieticketsystem.model.Hall;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface HallRepository extends JpaRepository<Hall, Long> {
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<Hall> findByNumber(Integer number);
+
+    List<Hall> findAllByOrderByNumber();
+
+    // SELECT ... FOR UPDATE, in hall number order so two transactions locking overlapping sets cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h from Hall h where h.number in :numbers order by h.number")
+    List<Hall> lockByNumbers(@Param("numbers") Collection<Integer> numbers);
+}
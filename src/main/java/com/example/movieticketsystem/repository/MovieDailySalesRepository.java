@@ -0,0 +1,44 @@
+package com.example.movieticketsystem.repository;
+
+import com.example.movieticketsystem.dto.SalesTotal;
+import com.example.movieticketsystem.model.MovieDailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface MovieDailySalesRepository extends JpaRepository<MovieDailySales, MovieDailySales.Key> {
+
+    // Cộng dồn vào dòng tổng hợp; trả về 0 nếu dòng chưa tồn tại
+    @Modifying
+    @Query("update MovieDailySales s set s.ticketsSold = s.ticketsSold + :tickets, s.revenue = s.revenue + :revenue " +
+            "where s.id.movieId = :movieId and s.id.salesDate = :salesDate")
+    int addSales(@Param("movieId") Long movieId,
+                 @Param("salesDate") LocalDate salesDate,
+                 @Param("tickets") long tickets,
+                 @Param("revenue") BigDecimal revenue);
+
+    @Modifying
+    @Query(value = "insert into movie_daily_sales (movie_id, sales_date, tickets_sold, revenue) " +
+            "select s.movie_id, cast(t.purchase_time as date), count(*), sum(coalesce(t.price, s.price)) " +
+            "from tickets t join screenings s on s.id = t.screening_id " +
+            "where t.status <> 'CANCELED' group by s.movie_id, cast(t.purchase_time as date)", nativeQuery = true)
+    int rebuildFromTickets();
+
+    @Query("select new com.example.movieticketsystem.dto.SalesTotal(m.title, sum(s.ticketsSold), sum(s.revenue)) " +
+            "from MovieDailySales s join Movie m on m.id = s.id.movieId " +
+            "where s.id.salesDate between :from and :to group by m.id, m.title order by sum(s.revenue) desc")
+    List<SalesTotal> findMovieTotals(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Tổng theo ngày (cộng tất cả phim)
+    @Query("select new com.example.movieticketsystem.dto.SalesTotal(cast(s.id.salesDate as String), sum(s.ticketsSold), sum(s.revenue)) " +
+            "from MovieDailySales s where s.id.salesDate between :from and :to " +
+            "group by s.id.salesDate order by s.id.salesDate")
+    List<SalesTotal> findDailyTotals(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
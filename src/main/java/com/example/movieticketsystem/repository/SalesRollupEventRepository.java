@@ -0,0 +1,20 @@
+package com.example.movieticketsystem.repository;
+
+import com.example.movieticketsystem.model.SalesRollupEvent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SalesRollupEventRepository extends JpaRepository<SalesRollupEvent, Long> {
+
+    // Các thay đổi doanh số cũ nhất chưa cộng vào bảng tổng hợp; khóa lại để hai node không cộng cùng một dòng hai lần
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from SalesRollupEvent e order by e.id")
+    List<SalesRollupEvent> findOldest(Pageable page);
+}
@@ -6,14 +6,24 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ScreeningRepository extends JpaRepository<Screening, Long> {
 
+    boolean existsByHallNumberAndSparseReservationsTrue(Integer hallNumber);
+
     List<Screening> findByMovie(Movie movie);
 
     List<Screening> findByStartTimeAfterOrderByStartTime(LocalDateTime date);
 
     List<Screening> findByMovieIdAndStartTimeAfterOrderByStartTime(Long movieId, LocalDateTime date);
+
+    List<Screening> findByEndTimeAfter(LocalDateTime date);
+
+    // Screenings in the given halls that overlap the time window
+    List<Screening> findByHallNumberInAndStartTimeLessThanAndEndTimeGreaterThan(Collection<Integer> hallNumbers,
+                                                                                LocalDateTime windowEnd,
+                                                                                LocalDateTime windowStart);
 }
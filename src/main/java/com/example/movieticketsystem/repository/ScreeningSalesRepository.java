@@ -0,0 +1,39 @@
+package com.example.movieticketsystem.repository;
+
+import com.example.movieticketsystem.dto.ScreeningOccupancy;
+import com.example.movieticketsystem.model.ScreeningSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ScreeningSalesRepository extends JpaRepository<ScreeningSales, Long> {
+
+    // Cộng dồn vào dòng tổng hợp; trả về 0 nếu dòng chưa tồn tại
+    @Modifying
+    @Query("update ScreeningSales s set s.ticketsSold = s.ticketsSold + :tickets, s.revenue = s.revenue + :revenue " +
+            "where s.screeningId = :screeningId")
+    int addSales(@Param("screeningId") Long screeningId,
+                 @Param("tickets") long tickets,
+                 @Param("revenue") BigDecimal revenue);
+
+    // Tính lại toàn bộ từ bảng tickets (chỉ dùng khi khởi tạo hoặc khi admin yêu cầu)
+    @Modifying
+    @Query(value = "insert into screening_sales (screening_id, tickets_sold, revenue) " +
+            "select t.screening_id, count(*), sum(coalesce(t.price, s.price)) from tickets t join screenings s on s.id = t.screening_id " +
+            "where t.status <> 'CANCELED' group by t.screening_id", nativeQuery = true)
+    int rebuildFromTickets();
+
+    // Screenings bắt đầu trong khoảng thời gian, kèm số vé đã bán (kể cả suất chưa bán vé nào)
+    @Query("select new com.example.movieticketsystem.dto.ScreeningOccupancy(" +
+            "s.id, m.title, s.startTime, s.hallNumber, coalesce(ss.ticketsSold, 0), s.totalSeats, coalesce(ss.revenue, 0)) " +
+            "from Screening s join s.movie m left join ScreeningSales ss on ss.screeningId = s.id " +
+            "where s.startTime >= :from and s.startTime < :to order by s.startTime")
+    List<ScreeningOccupancy> findOccupancy(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
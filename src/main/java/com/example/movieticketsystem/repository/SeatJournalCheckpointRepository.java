@@ -0,0 +1,9 @@
+package com.example.movieticketsystem.repository;
+
+import com.example.movieticketsystem.model.SeatJournalCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SeatJournalCheckpointRepository extends JpaRepository<SeatJournalCheckpoint, String> {
+}
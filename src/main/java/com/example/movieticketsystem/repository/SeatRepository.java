@@ -1,16 +1,24 @@
 package com.example.movieticketsystem.repository;
 
 import com.example.movieticketsystem.model.Seat;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface SeatRepository extends JpaRepository<Seat, Long> {
 
-    List<Seat> findByHallNumber(Integer hallNumber);
+    // Ghế mẫu của phòng chiếu (không gồm ghế cũ được tạo riêng cho từng suất chiếu)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select s from Seat s where s.hall.number = :hallNumber order by s.rowNumber, s.seatNumber")
+    List<Seat> findByHallNumber(@Param("hallNumber") Integer hallNumber);
 
-    Optional<Seat> findByHallNumberAndRowNumberAndSeatNumber(Integer hallNumber, Integer rowNumber, Integer seatNumber);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Seat> findByHallIdOrderByRowNumberAscSeatNumberAsc(Long hallId);
 }
\ No newline at end of file
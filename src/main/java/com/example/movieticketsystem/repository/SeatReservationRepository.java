@@ -1,14 +1,19 @@
 package com.example.movieticketsystem.repository;
 
+import com.example.movieticketsystem.dto.SeatStateView;
 import com.example.movieticketsystem.model.Screening;
 import com.example.movieticketsystem.model.Seat;
 import com.example.movieticketsystem.model.SeatReservation;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,7 +27,55 @@ public interface SeatReservationRepository extends JpaRepository<SeatReservation
 
     boolean existsByScreeningAndSeatAndReserved(Screening screening, Seat seat, boolean reserved);
 
+    boolean existsBySeat_Hall_Id(Long hallId);
+
+    @Query("select sr.seat.id from SeatReservation sr where sr.screening.id = :screeningId and sr.seat.id in :seatIds")
+    List<Long> findSeatIds(@Param("screeningId") Long screeningId, @Param("seatIds") Collection<Long> seatIds);
+
     List<SeatReservation> findByReservationExpiryLessThanAndConfirmedFalse(LocalDateTime dateTime);
 
     List<SeatReservation> findByScreeningIdOrderBySeat_RowNumberAscSeat_SeatNumberAsc(Long screeningId);
+
+    // Trạng thái và vị trí ghế trong một câu JOIN (không load entity) để dựng lại SeatStateEngine;
+    // với suất chiếu sparse chỉ có các ghế đã từng được giữ hoặc bán
+    @Query("select s.id as seatId, s.rowNumber as rowNumber, s.seatNumber as seatNumber, s.seatName as seatName, " +
+            "s.columnNumber as columnNumber, s.seatType as seatType, sr.reserved as reserved, sr.confirmed as confirmed, sr.reservationExpiry as reservationExpiry, sr.holdId as holdId " +
+            "from SeatReservation sr join sr.seat s where sr.screening.id = :screeningId order by s.id")
+    List<SeatStateView> findSeatStatesByScreeningId(@Param("screeningId") Long screeningId);
+
+    // Ghế không còn trống: đã bán hoặc đang được giữ (chưa hết hạn)
+    @Query("select sr.seat.id from SeatReservation sr where sr.screening.id = :screeningId and sr.seat.id in :seatIds " +
+            "and (sr.confirmed = true or (sr.reserved = true and sr.reservationExpiry > :now))")
+    List<Long> findUnavailableSeatIds(@Param("screeningId") Long screeningId,
+                                      @Param("seatIds") Collection<Long> seatIds,
+                                      @Param("now") LocalDateTime now);
+
+    // Giữ tất cả ghế trong một câu lệnh: chỉ cập nhật ghế chưa xác nhận và chưa bị giữ (hoặc đã hết hạn giữ)
+    @Modifying
+    @Query("update versioned SeatReservation sr set sr.reserved = true, sr.reservationExpiry = :expiry, sr.holdId = :holdId " +
+            "where sr.screening.id = :screeningId and sr.seat.id in :seatIds and sr.confirmed = false " +
+            "and (sr.reserved = false or sr.reservationExpiry <= :now)")
+    int holdSeats(@Param("screeningId") Long screeningId,
+                  @Param("seatIds") Collection<Long> seatIds,
+                  @Param("holdId") long holdId,
+                  @Param("expiry") LocalDateTime expiry,
+                  @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update versioned SeatReservation sr set sr.reserved = false, sr.reservationExpiry = null, sr.holdId = null " +
+            "where sr.screening.id = :screeningId and sr.seat.id in :seatIds and sr.confirmed = false")
+    int markReleased(@Param("screeningId") Long screeningId, @Param("seatIds") Collection<Long> seatIds);
+
+    // Xác nhận các ghế còn đang được giữ bởi lần giữ ghế holdId (chưa hết hạn) trong một câu lệnh (khi tạo vé)
+    @Modifying
+    @Query("update versioned SeatReservation sr set sr.confirmed = true, sr.reservationExpiry = null, sr.holdId = null " +
+            "where sr.screening.id = :screeningId and sr.seat.id in :seatIds and sr.reserved = true and sr.confirmed = false " +
+            "and sr.holdId = :holdId and sr.reservationExpiry > :now")
+    int confirmHeldSeats(@Param("screeningId") Long screeningId, @Param("seatIds") Collection<Long> seatIds,
+                         @Param("holdId") long holdId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update versioned SeatReservation sr set sr.reserved = false, sr.reservationExpiry = null, sr.holdId = null " +
+            "where sr.reserved = true and sr.confirmed = false and sr.reservationExpiry <= :now")
+    int releaseExpiredHolds(@Param("now") LocalDateTime now);
 }
@@ -0,0 +1,129 @@
+package com.example.movieticketsystem.repository;
+
+import com.example.movieticketsystem.dto.TicketReportFilter;
+import com.example.movieticketsystem.dto.TicketReportRow;
+import com.example.movieticketsystem.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Admin ticket report read with plain SQL: no entities, no persistence context.
+ * Pages are keyset-scrolled on the ticket id (newest first); exports are streamed from a JDBC cursor.
+ */
+@Repository
+@Slf4j
+public class TicketReportRepository {
+
+    private static final String SELECT = """
+            select t.id, t.purchase_time, t.status, u.username, m.id as movie_id, m.title,
+                   sc.id as screening_id, sc.start_time, sc.hall_number, coalesce(t.price, sc.price) as price,
+                   coalesce(se.seat_name, concat('Row ', se.row_num, ', Seat ', se.seat_number)) as seat_name
+            from tickets t
+            join users u on u.id = t.user_id
+            join screenings sc on sc.id = t.screening_id
+            join movies m on m.id = sc.movie_id
+            join seats se on se.id = t.seat_id
+            where 1 = 1""";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    // Separate template for exports, so only they read with the cursor fetch size
+    private final NamedParameterJdbcTemplate streamingTemplate;
+
+    public TicketReportRepository(DataSource dataSource, NamedParameterJdbcTemplate jdbcTemplate,
+                                  @Value("${report.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        // MySQL Connector/J buffers the whole result set unless the fetch size is Integer.MIN_VALUE (row-by-row streaming)
+        streaming.setFetchSize(isMySql(dataSource) ? Integer.MIN_VALUE : fetchSize);
+        this.streamingTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    /**
+     * Up to limit tickets matching the filter with an id below beforeId (all when null), newest first
+     */
+    public List<TicketReportRow> findPage(TicketReportFilter filter, Long beforeId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = where(filter, params);
+        if (beforeId != null) {
+            sql.append(" and t.id < :beforeId");
+            params.addValue("beforeId", beforeId);
+        }
+        sql.append(" order by t.id desc limit :limit");
+        params.addValue("limit", limit);
+        return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> mapRow(rs));
+    }
+
+    /**
+     * Pass every ticket matching the filter to the consumer, newest first, one row in memory at a time
+     */
+    public void streamAll(TicketReportFilter filter, Consumer<TicketReportRow> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = where(filter, params).append(" order by t.id desc");
+        streamingTemplate.query(sql.toString(), params, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs)));
+    }
+
+    private static StringBuilder where(TicketReportFilter filter, MapSqlParameterSource params) {
+        StringBuilder sql = new StringBuilder(SELECT);
+        if (filter.getFrom() != null) {
+            sql.append(" and t.purchase_time >= :from");
+            params.addValue("from", filter.getFrom().atStartOfDay());
+        }
+        if (filter.getTo() != null) {
+            sql.append(" and t.purchase_time < :to");
+            params.addValue("to", filter.getTo().plusDays(1).atStartOfDay());
+        }
+        if (filter.getScreeningId() != null) {
+            sql.append(" and t.screening_id = :screeningId");
+            params.addValue("screeningId", filter.getScreeningId());
+        }
+        if (filter.getMovieId() != null) {
+            sql.append(" and sc.movie_id = :movieId");
+            params.addValue("movieId", filter.getMovieId());
+        }
+        if (filter.getStatus() != null) {
+            sql.append(" and t.status = :status");
+            params.addValue("status", filter.getStatus().name());
+        }
+        return sql;
+    }
+
+    private static TicketReportRow mapRow(ResultSet rs) throws SQLException {
+        return new TicketReportRow(
+                rs.getLong("id"),
+                rs.getObject("purchase_time", LocalDateTime.class),
+                Ticket.TicketStatus.valueOf(rs.getString("status")),
+                rs.getString("username"),
+                rs.getLong("movie_id"),
+                rs.getString("title"),
+                rs.getLong("screening_id"),
+                rs.getObject("start_time", LocalDateTime.class),
+                rs.getInt("hall_number"),
+                rs.getString("seat_name"),
+                rs.getBigDecimal("price"));
+    }
+
+    private static boolean isMySql(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return product.toLowerCase().contains("mysql");
+        } catch (MetaDataAccessException e) {
+            log.warn("Could not detect the database, exports use the default fetch size: {}", e.getMessage());
+            return false;
+        }
+    }
+}
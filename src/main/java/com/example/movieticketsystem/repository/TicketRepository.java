@@ -3,6 +3,8 @@ package com.example.movieticketsystem.repository;
 import com.example.movieticketsystem.model.Ticket;
 import com.example.movieticketsystem.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -18,16 +20,20 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     List<Ticket> findByScreeningId(Long screeningId);
 
     // Tìm vé theo userId và trạng thái, sắp xếp theo thời gian mua giảm dần (mới nhất trước)
-    List<Ticket> findByUserIdAndStatusOrderByPurchaseTimeDesc(Long userId, Ticket.TicketStatus status);
+    // Filters on the user_id column itself (the derived query joined users), so idx_tickets_user_status_time is used
+    @Query("select t from Ticket t where t.user.id = :userId and t.status = :status order by t.purchaseTime desc")
+    List<Ticket> findByUserIdAndStatusOrderByPurchaseTimeDesc(@Param("userId") Long userId, @Param("status") Ticket.TicketStatus status);
 
     // Tìm tất cả vé của một người dùng, sắp xếp theo thời gian mua giảm dần
-    List<Ticket> findByUserIdOrderByPurchaseTimeDesc(Long userId);
+    @Query("select t from Ticket t where t.user.id = :userId order by t.purchaseTime desc")
+    List<Ticket> findByUserIdOrderByPurchaseTimeDesc(@Param("userId") Long userId);
 
     // Tìm vé cho các suất chiếu chưa bắt đầu
     List<Ticket> findByUserIdAndScreeningStartTimeAfterOrderByScreeningStartTime(Long userId, LocalDateTime now);
 
     boolean existsByScreeningId(Long screeningId);
 
-    // Kiểm tra xem có vé active cho screening không
-    boolean existsByScreeningIdAndStatusNot(Long screeningId, Ticket.TicketStatus status);
+    // Kiểm tra xem có vé active cho screening không (on idx_tickets_screening_status, without joining screenings)
+    @Query("select count(t) > 0 from Ticket t where t.screening.id = :screeningId and t.status <> :status")
+    boolean existsByScreeningIdAndStatusNot(@Param("screeningId") Long screeningId, @Param("status") Ticket.TicketStatus status);
 }
\ No newline at end of file
@@ -0,0 +1,160 @@
+package com.example.movieticketsystem.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Booking metrics, exposed through the actuator metrics endpoint.
+ * Meters used on hot paths are created once here so recording them is only an increment.
+ */
+@Component
+public class BookingMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer limiterWait;
+    private final Counter seatsHeld;
+    private final Counter seatsTaken;
+    private final Counter seatsRejectedByDatabase;
+    private final Timer commandWait;
+    private final Timer holdWrite;
+    private final DistributionSummary holdBatch;
+    private final Timer releaseWrite;
+    private final Timer expireWrite;
+    private final Counter expiredHolds;
+    private final Counter ticketsIssued;
+
+    // Occupancy gauges of each loaded screening, removed when the screening is unloaded
+    private final Map<Long, List<Meter>> screeningGauges = new ConcurrentHashMap<>();
+
+    public BookingMetrics(MeterRegistry registry, Semaphore bookingLimiter) {
+        this.registry = registry;
+
+        Gauge.builder("booking.limiter.available", bookingLimiter, Semaphore::availablePermits)
+                .description("Booking permits currently free")
+                .register(registry);
+        Gauge.builder("booking.limiter.queued", bookingLimiter, Semaphore::getQueueLength)
+                .description("Booking requests waiting for a permit")
+                .register(registry);
+        limiterWait = Timer.builder("booking.limiter.wait")
+                .description("Time spent waiting for a booking permit")
+                .register(registry);
+
+        seatsHeld = holdCounter("held");
+        seatsTaken = holdCounter("taken");
+        seatsRejectedByDatabase = holdCounter("rejected");
+        commandWait = Timer.builder("booking.seat.command_wait")
+                .description("Time a seat change waits in its screening's mailbox before the seat worker applies it")
+                .register(registry);
+
+        holdWrite = seatWriteTimer("hold");
+        holdBatch = DistributionSummary.builder("booking.seat.hold_batch")
+                .description("Holds written to the database together in one transaction")
+                .register(registry);
+        releaseWrite = seatWriteTimer("release");
+        expireWrite = seatWriteTimer("expire");
+        expiredHolds = Counter.builder("booking.holds.expired")
+                .description("Seat holds released because they expired")
+                .register(registry);
+
+        ticketsIssued = Counter.builder("booking.tickets.issued").register(registry);
+    }
+
+    public Timer getLimiterWait() {
+        return limiterWait;
+    }
+
+    /**
+     * Outcome of a hold attempt: held, taken (seat not available in memory) or rejected (by the database)
+     */
+    public void recordHold(boolean held, boolean rejectedByDatabase) {
+        if (held) {
+            seatsHeld.increment();
+        } else if (rejectedByDatabase) {
+            seatsRejectedByDatabase.increment();
+        } else {
+            seatsTaken.increment();
+        }
+    }
+
+    public Timer getCommandWait() {
+        return commandWait;
+    }
+
+    public Timer getHoldWrite() {
+        return holdWrite;
+    }
+
+    public void recordHoldBatch(int holds) {
+        holdBatch.record(holds);
+    }
+
+    public Timer getReleaseWrite() {
+        return releaseWrite;
+    }
+
+    public void recordExpiredHolds(Timer.Sample sample, int released) {
+        sample.stop(expireWrite);
+        expiredHolds.increment(released);
+    }
+
+    public void recordReservation(Timer.Sample sample, String outcome) {
+        sample.stop(registry.timer("booking.reserve", "outcome", outcome));
+    }
+
+    public void recordTicketIssue(Timer.Sample sample, String outcome, int tickets) {
+        sample.stop(registry.timer("booking.tickets.issue", "outcome", outcome));
+        ticketsIssued.increment(tickets);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Register available/held/sold seat gauges for a loaded screening, replacing those of a previous load
+     */
+    public <T> void bindScreening(long screeningId, T state, ToDoubleFunction<T> available,
+                                  ToDoubleFunction<T> held, ToDoubleFunction<T> sold) {
+        // The registry would hand back an existing gauge still bound to the old state
+        unbindScreening(screeningId);
+        Tags tags = Tags.of("screening", String.valueOf(screeningId));
+        screeningGauges.put(screeningId, List.of(
+                Gauge.builder("booking.screening.seats", state, available).tags(tags).tag("state", "available").register(registry),
+                Gauge.builder("booking.screening.seats", state, held).tags(tags).tag("state", "held").register(registry),
+                Gauge.builder("booking.screening.seats", state, sold).tags(tags).tag("state", "sold").register(registry)));
+    }
+
+    public void unbindScreening(long screeningId) {
+        List<Meter> gauges = screeningGauges.remove(screeningId);
+        if (gauges != null) {
+            gauges.forEach(registry::remove);
+        }
+    }
+
+    private Counter holdCounter(String outcome) {
+        return Counter.builder("booking.seat.holds")
+                .description("Seat hold attempts by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Timer seatWriteTimer(String operation) {
+        return Timer.builder("booking.seat.db")
+                .description("Database time of seat state writes, including commit")
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -1,15 +1,26 @@
 package com.example.movieticketsystem.service;
 
+import com.example.movieticketsystem.dto.SeatMapSeat;
 import com.example.movieticketsystem.model.*;
 import com.example.movieticketsystem.repository.*;
+import io.micrometer.core.instrument.Timer;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @RequiredArgsConstructor
@@ -21,120 +32,83 @@ public class BookingService {
     private final SeatReservationRepository seatReservationRepository;
     private final UserRepository userRepository;
     private final TicketRepository ticketRepository;
+    private final SeatStateEngine seatStateEngine;
+    private final BookingMetrics bookingMetrics;
+    private final SalesRollupService salesRollupService;
 
     // Constant for reservation timeout (in minutes)
-    private static final int RESERVATION_TIMEOUT_MINUTES = 15;
+    public static final int RESERVATION_TIMEOUT_MINUTES = 15;
 
     /**
-     * Get all available seats for a screening
+     * Expiry for a hold made now, in whole seconds: the precision of the reservation_expiry column,
+     * so the expiry in the hold token is the one the hold has after it was written and read back
      */
-    public List<SeatReservation> getAvailableSeats(Long screeningId) {
-        // Clean up expired reservations first
-        cleanupExpiredReservations();
-        
-        // Get seats with proper ordering
-        List<SeatReservation> seats = seatReservationRepository.findByScreeningIdOrderBySeat_RowNumberAscSeat_SeatNumberAsc(screeningId);
-        
-        // Sort seats by row number and seat number
-        seats.sort((a, b) -> {
-            int rowCompare = a.getSeat().getRowNumber().compareTo(b.getSeat().getRowNumber());
-            if (rowCompare == 0) {
-                return a.getSeat().getSeatNumber().compareTo(b.getSeat().getSeatNumber());
-            }
-            return rowCompare;
-        });
-        
-        return seats;
+    public static LocalDateTime newHoldExpiry() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusMinutes(RESERVATION_TIMEOUT_MINUTES);
     }
 
     /**
-     * Clean up expired reservations
+     * Id for a new hold, kept with its seats and in the hold token; confirming and releasing the hold go by it
      */
-    @Transactional
-    public void cleanupExpiredReservations() {
-        LocalDateTime now = LocalDateTime.now();
-        List<SeatReservation> expiredReservations = seatReservationRepository.findByReservationExpiryLessThanAndConfirmedFalse(now);
-        for (SeatReservation reservation : expiredReservations) {
-            reservation.setReserved(false);
-            reservation.setReservationExpiry(null);
-            seatReservationRepository.save(reservation);
-        }
+    public static long newHoldId() {
+        return ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
     }
 
     /**
-     * Reserve a seat for a screening
+     * Get the seat reservation rows of a screening (for a sparse screening, only seats that were held or sold)
      */
-    @Transactional
-    public boolean reserveSeat(Long screeningId, Long seatId) throws InterruptedException {
-        Optional<Screening> screeningOpt = screeningRepository.findById(screeningId);
-        Optional<Seat> seatOpt = seatRepository.findById(seatId);
-
-        if (screeningOpt.isEmpty() || seatOpt.isEmpty()) {
-            return false;
-        }
-
-        Screening screening = screeningOpt.get();
-        Seat seat = seatOpt.get();
-
-        Optional<SeatReservation> reservationOpt = seatReservationRepository.findByScreeningAndSeat(screening, seat);
+    public List<SeatReservation> getAvailableSeats(Long screeningId) {
+        // Already ordered by row and seat number in the query
+        return seatReservationRepository.findByScreeningIdOrderBySeat_RowNumberAscSeat_SeatNumberAsc(screeningId);
+    }
 
-        if (reservationOpt.isPresent()) {
-            SeatReservation reservation = reservationOpt.get();
+    /**
+     * Get the seat map of a screening grouped by row, served from the seat state engine
+     */
+    public Map<Integer, List<SeatMapSeat>> getSeatMap(Long screeningId) {
+        return seatStateEngine.getSeatMap(screeningId);
+    }
 
-            // Kiểm tra xem ghế đã được xác nhận chưa
-            if (reservation.isConfirmed()) {
-                return false;
-            }
+    /**
+     * Clean up expired reservations with one bulk UPDATE.
+     * Normally done every second by the seat state engine; kept for manual sweeps.
+     */
+    @Transactional
+    public int cleanupExpiredReservations() {
+        Timer.Sample sample = bookingMetrics.start();
+        int released = seatReservationRepository.releaseExpiredHolds(LocalDateTime.now());
+        bookingMetrics.recordExpiredHolds(sample, released);
+        return released;
+    }
 
-            // Kiểm tra xem ghế có đang được đặt tạm thời và chưa hết hạn không
-            if (reservation.isReserved() && (reservation.getReservationExpiry() == null || 
-                reservation.getReservationExpiry().isAfter(LocalDateTime.now()))) {
-                return false;
-            }
+    /**
+     * Reserve a seat for a screening
+     */
+    public boolean reserveSeat(Long screeningId, Long seatId) {
+        return reserveSeats(screeningId, List.of(seatId));
+    }
 
-            // Đặt chỗ tạm thời với thời gian hết hạn
-            reservation.setReserved(true);
-            reservation.setConfirmed(false);
-            reservation.setReservationExpiry(LocalDateTime.now().plusMinutes(RESERVATION_TIMEOUT_MINUTES));
-            seatReservationRepository.save(reservation);
-            return true;
-        }
+    /**
+     * Reserve all given seats for a screening, or none of them.
+     * Decided in memory by the seat state engine and claimed in the database with one conditional UPDATE.
+     */
+    public boolean reserveSeats(Long screeningId, List<Long> seatIds) {
+        return reserveSeats(screeningId, seatIds, newHoldId(), newHoldExpiry());
+    }
 
-        return false;
+    /**
+     * Reserve all given seats under the given hold id until the given expiry, or none of them
+     */
+    public boolean reserveSeats(Long screeningId, List<Long> seatIds, long holdId, LocalDateTime expiry) {
+        return seatStateEngine.tryHoldAll(screeningId, seatIds, holdId, expiry);
     }
 
     /**
      * Release a previously reserved seat
      */
-    @Transactional
     public boolean releaseSeat(Long screeningId, Long seatId) {
         try {
-            Optional<Screening> screeningOpt = screeningRepository.findById(screeningId);
-            Optional<Seat> seatOpt = seatRepository.findById(seatId);
-
-            if (screeningOpt.isEmpty() || seatOpt.isEmpty()) {
-                return false;
-            }
-
-            Screening screening = screeningOpt.get();
-            Seat seat = seatOpt.get();
-
-            // Find the reservation
-            Optional<SeatReservation> reservationOpt = seatReservationRepository.findByScreeningAndSeat(screening, seat);
-
-            if (reservationOpt.isPresent()) {
-                SeatReservation reservation = reservationOpt.get();
-
-                // Chỉ giải phóng ghế nếu nó chưa được xác nhận
-                if (!reservation.isConfirmed()) {
-                    reservation.setReserved(false);
-                    reservation.setReservationExpiry(null);
-                    seatReservationRepository.save(reservation);
-                    return true;
-                }
-            }
-
-            return false;
+            return seatStateEngine.release(screeningId, seatId);
         } catch (Exception e) {
             log.error("Error releasing seat: screeningId={}, seatId={}", screeningId, seatId, e);
             return false;
@@ -142,47 +116,66 @@ public class BookingService {
     }
 
     /**
-     * Create a new ticket for a user
+     * Release a seat only if it is still under the given hold
      */
-    @Transactional
-    public Optional<Ticket> createTicket(User user, Long screeningId, Long seatId) {
+    public boolean releaseHold(Long screeningId, Long seatId, long holdId) {
         try {
-            Optional<Screening> screeningOpt = screeningRepository.findById(screeningId);
-            Optional<Seat> seatOpt = seatRepository.findById(seatId);
-
-            if (screeningOpt.isEmpty() || seatOpt.isEmpty() || user == null) {
-                return Optional.empty();
-            }
-
-            Screening screening = screeningOpt.get();
-            Seat seat = seatOpt.get();
-
-            // Tìm reservation để kiểm tra và xác nhận
-            Optional<SeatReservation> reservationOpt = seatReservationRepository.findByScreeningAndSeat(screening, seat);
-
-            if (reservationOpt.isPresent() && reservationOpt.get().isReserved()) {
-                SeatReservation reservation = reservationOpt.get();
-                
-                // Xác nhận đặt chỗ và xóa thời gian hết hạn
-                reservation.setConfirmed(true);
-                reservation.setReservationExpiry(null);
-                seatReservationRepository.save(reservation);
+            return seatStateEngine.releaseHold(screeningId, seatId, holdId);
+        } catch (Exception e) {
+            log.error("Error releasing seat hold: screeningId={}, seatId={}", screeningId, seatId, e);
+            return false;
+        }
+    }
 
-                // Tạo vé
-                Ticket ticket = new Ticket();
-                ticket.setUser(user);
-                ticket.setScreening(screening);
-                ticket.setSeat(seat);
-                ticket.setStatus(Ticket.TicketStatus.ACTIVE);
+    /**
+     * Issue tickets for all held seats of an order in one transaction: one UPDATE confirms the holds,
+     * the tickets go in as one JDBC batch. Returns an empty list, with nothing written, unless every seat is still
+     * under the hold holdId (the one in the buyer's hold token) and that hold has not run out.
+     * Callers flush the seat state engine first, before this transaction starts (see {@link SeatStateEngine#flush}),
+     * so the holds have reached the database; the seats are marked sold in memory only after the commit.
+     */
+    @Transactional
+    public List<Ticket> createTickets(User user, Long screeningId, List<Long> seatIds, long holdId) {
+        if (user == null || seatIds.isEmpty()) {
+            return List.of();
+        }
 
-                return Optional.of(ticketRepository.save(ticket));
-            }
+        int confirmed = seatReservationRepository.confirmHeldSeats(screeningId, seatIds, holdId, LocalDateTime.now());
+        if (confirmed != seatIds.size()) {
+            log.warn("Only {} of {} seats were still held, no tickets issued: userId={}, screeningId={}, seatIds={}",
+                    confirmed, seatIds.size(), user.getId(), screeningId, seatIds);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return List.of();
+        }
 
-            return Optional.empty();
-        } catch (Exception e) {
-            log.error("Error creating ticket: userId={}, screeningId={}, seatId={}", user.getId(), screeningId, seatId, e);
-            return Optional.empty();
+        // References only: the rows were just checked by the UPDATE, no need to load them
+        // (the screening's price comes from the second-level cache)
+        Screening screening = screeningRepository.getReferenceById(screeningId);
+        User buyer = userRepository.getReferenceById(user.getId());
+        BigDecimal price = screening.getPrice();
+        List<Ticket> tickets = new ArrayList<>(seatIds.size());
+        for (Long seatId : seatIds) {
+            Ticket ticket = new Ticket();
+            ticket.setUser(buyer);
+            ticket.setScreening(screening);
+            ticket.setSeat(seatRepository.getReferenceById(seatId));
+            ticket.setPrice(price);
+            ticket.setStatus(Ticket.TicketStatus.ACTIVE);
+            tickets.add(ticket);
         }
+        List<Ticket> saved = ticketRepository.saveAll(tickets);
+        recordSales(screening, saved.get(0).getPurchaseTime(), saved.size(), price.multiply(BigDecimal.valueOf(saved.size())));
+
+        // Only tell the in-memory seat state once the tickets are committed
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Long seatId : seatIds) {
+                    seatStateEngine.markConfirmed(screeningId, seatId);
+                }
+            }
+        });
+        return saved;
     }
 
     /**
@@ -216,7 +209,8 @@ public class BookingService {
             // Release the seat
             Optional<SeatReservation> reservationOpt = seatReservationRepository.findByScreeningAndSeat(ticket.getScreening(), ticket.getSeat());
 
-            if (reservationOpt.isPresent()) {
+            boolean seatReleased = reservationOpt.isPresent();
+            if (seatReleased) {
                 SeatReservation reservation = reservationOpt.get();
                 // Reset both reserved and confirmed status
                 reservation.setReserved(false);
@@ -225,6 +219,23 @@ public class BookingService {
                 seatReservationRepository.save(reservation);
             }
 
+            // Take back what was paid, counted on the day the ticket was bought
+            // (tickets issued before prices were recorded on them paid the screening's price)
+            BigDecimal paid = ticket.getPrice() != null ? ticket.getPrice() : ticket.getScreening().getPrice();
+            recordSales(ticket.getScreening(), ticket.getPurchaseTime(), -1, paid.negate());
+
+            // The in-memory seat state only frees the seat once the cancellation is committed
+            Long screeningId = ticket.getScreening().getId();
+            Long seatId = ticket.getSeat().getId();
+            if (seatReleased) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        seatStateEngine.markFree(screeningId, seatId);
+                    }
+                });
+            }
+
             return true;
         } catch (Exception e) {
             log.error("Error canceling ticket: ticketId={}, userId={}", ticketId, userId, e);
@@ -232,6 +243,15 @@ public class BookingService {
         }
     }
 
+    /**
+     * Record the sale or cancellation for the sales rollups, in the current transaction
+     */
+    private void recordSales(Screening screening, LocalDateTime purchaseTime, int tickets, BigDecimal revenue) {
+        LocalDate salesDate = purchaseTime != null ? purchaseTime.toLocalDate() : LocalDate.now();
+        salesRollupService.recordSales(screening.getId(), screening.getMovie().getId(), screening.getHallNumber(),
+                salesDate, tickets, revenue);
+    }
+
     /**
      * Get active tickets for a user
      */
@@ -0,0 +1,34 @@
+package com.example.movieticketsystem.service;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Drops second-level cache entries of changed catalog data once the change is committed.
+ * Hibernate already invalidates what it writes itself; this also covers native deletes and cascades.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogCacheEvictor {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        Cache cache = entityManagerFactory.getCache();
+        if (event.id() != null) {
+            cache.evict(event.type(), event.id());
+        } else {
+            cache.evict(event.type());
+        }
+        // Cached movie lists and searches may contain the changed entity
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+        log.debug("Evicted cached {} {}", event.type().getSimpleName(), event.id() != null ? event.id() : "(all)");
+    }
+}
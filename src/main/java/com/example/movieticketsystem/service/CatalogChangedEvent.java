@@ -0,0 +1,8 @@
+package com.example.movieticketsystem.service;
+
+/**
+ * Published when an admin saves or deletes a movie or screening.
+ * A null id means every entity of the type may have changed.
+ */
+public record CatalogChangedEvent(Class<?> type, Long id) {
+}
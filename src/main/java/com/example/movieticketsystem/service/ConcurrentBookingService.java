@@ -1,147 +1,137 @@
 package com.example.movieticketsystem.service;
 
 import com.example.movieticketsystem.model.*;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import jakarta.servlet.http.HttpSession;
 
+import java.time.LocalDateTime;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.Map;
-import java.util.Optional;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ConcurrentBookingService {
+    private static final String OVERLOADED_MESSAGE = "Hệ thống đang quá tải. Vui lòng thử lại sau.";
+
     private final BookingService bookingService;
-    private final int processorCount = Runtime.getRuntime().availableProcessors();
-    // Thread pool để xử lý các yêu cầu đặt vé đồng thời
-    private final ExecutorService bookingExecutor = Executors.newFixedThreadPool(processorCount * 2);
-    
-    // Cache để lưu trữ trạng thái ghế, sử dụng ConcurrentHashMap để thread-safe
-    private final Map<String, ReentrantLock> seatLocks = new ConcurrentHashMap<>();
-    
-    // Semaphore để giới hạn số lượng đặt vé đồng thời
-    private final Semaphore bookingLimiter = new Semaphore(processorCount * 4);
+    private final SeatStateEngine seatStateEngine;
+    // Thread pool (hoặc virtual threads) để xử lý các yêu cầu đặt vé đồng thời, xem BookingConfig
+    private final ExecutorService bookingExecutor;
+
+    // Semaphore để giới hạn số lượng đặt vé đồng thời (mặc định bằng kích thước connection pool)
+    private final Semaphore bookingLimiter;
+    private final BookingMetrics bookingMetrics;
+    // Thời gian giữ permit của mỗi lần đặt chỗ quyết định tốc độ cho khách vào từ hàng đợi
+    private final WaitingRoom waitingRoom;
 
     /**
      * Đặt nhiều ghế đồng thời cho một screening
      */
     public CompletableFuture<BookingResult> reserveSeatsAsync(Long screeningId, List<Long> seatIds, User user) {
+        return reserveSeatsAsync(screeningId, seatIds, user, BookingService.newHoldId(), BookingService.newHoldExpiry());
+    }
+
+    /**
+     * Đặt nhiều ghế đồng thời dưới lần giữ ghế holdId (cũng nằm trong hold token), giữ đến thời điểm holdExpiry
+     */
+    public CompletableFuture<BookingResult> reserveSeatsAsync(Long screeningId, List<Long> seatIds, User user,
+                                                              long holdId, LocalDateTime holdExpiry) {
         return CompletableFuture.supplyAsync(() -> {
+            Timer.Sample sample = bookingMetrics.start();
             try {
                 // Cố gắng lấy permit từ semaphore
-                if (!bookingLimiter.tryAcquire(5, TimeUnit.SECONDS)) {
-                    return new BookingResult(false, "Hệ thống đang quá tải. Vui lòng thử lại sau.");
+                long waitStart = System.nanoTime();
+                boolean admitted = bookingLimiter.tryAcquire(5, TimeUnit.SECONDS);
+                bookingMetrics.getLimiterWait().record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+                if (!admitted) {
+                    bookingMetrics.recordReservation(sample, "overloaded");
+                    return new BookingResult(false, OVERLOADED_MESSAGE);
                 }
 
-                List<Long> successfulReservations = new CopyOnWriteArrayList<>();
-                boolean needsRollback = false;
-
+                long bookingStart = System.nanoTime();
                 try {
-                    // Đặt tất cả các ghế
-                    for (Long seatId : seatIds) {
-                        String lockKey = screeningId + "-" + seatId;
-                        ReentrantLock lock = seatLocks.computeIfAbsent(lockKey, k -> new ReentrantLock());
-                        
-                        if (lock.tryLock(5, TimeUnit.SECONDS)) {
-                            try {
-                                if (bookingService.reserveSeat(screeningId, seatId)) {
-                                    successfulReservations.add(seatId);
-                                } else {
-                                    needsRollback = true;
-                                    break;
-                                }
-                            } finally {
-                                lock.unlock();
-                            }
-                        } else {
-                            needsRollback = true;
-                            break;
-                        }
-                    }
-
-                    if (needsRollback || successfulReservations.size() != seatIds.size()) {
-                        rollbackReservations(screeningId, successfulReservations);
+                    // Giữ tất cả các ghế trong một lần: thành công toàn bộ hoặc không giữ ghế nào
+                    if (!bookingService.reserveSeats(screeningId, seatIds, holdId, holdExpiry)) {
+                        bookingMetrics.recordReservation(sample, "unavailable");
                         return new BookingResult(false, "Not all seats available. Please try again.");
                     }
 
+                    bookingMetrics.recordReservation(sample, "success");
                     return new BookingResult(true, "Đặt chỗ thành công", null);
-
-                } catch (Exception e) {
-                    if (!successfulReservations.isEmpty()) {
-                        rollbackReservations(screeningId, successfulReservations);
-                    }
-                    throw e;
                 } finally {
+                    waitingRoom.recordBookingTime(System.nanoTime() - bookingStart);
                     bookingLimiter.release();
                 }
+            } catch (SeatEngineBusyException e) {
+                // Luồng xử lý ghế của suất chiếu không trả lời kịp: ghế không được giữ, khách thử lại như khi quá tải
+                log.warn("Seat hold timed out: screeningId={}: {}", screeningId, e.getMessage());
+                bookingMetrics.recordReservation(sample, "overloaded");
+                return new BookingResult(false, OVERLOADED_MESSAGE);
             } catch (Exception e) {
                 log.error("Error in concurrent booking: {}", e.getMessage());
+                bookingMetrics.recordReservation(sample, "error");
                 return new BookingResult(false, "Lỗi hệ thống: " + e.getMessage());
             }
         }, bookingExecutor);
     }
 
     /**
-     * Tạo vé sau khi thanh toán thành công
+     * Tạo vé sau khi thanh toán, chỉ khi các ghế vẫn đang được giữ bởi lần giữ ghế holdId (chưa hết hạn)
      */
-    public CompletableFuture<BookingResult> createTicketsAfterPayment(Long screeningId, List<Long> seatIds, User user) {
+    public CompletableFuture<BookingResult> createTicketsAfterPayment(Long screeningId, List<Long> seatIds, User user,
+                                                                      long holdId) {
         return CompletableFuture.supplyAsync(() -> {
+            Timer.Sample sample = bookingMetrics.start();
             try {
-                List<Ticket> tickets = new CopyOnWriteArrayList<>();
-                boolean needsRollback = false;
-
-                // Tạo vé cho các ghế đã đặt
-                for (Long seatId : seatIds) {
-                    Optional<Ticket> ticket = bookingService.createTicket(user, screeningId, seatId);
-                    if (ticket.isEmpty()) {
-                        needsRollback = true;
-                        break;
-                    }
-                    tickets.add(ticket.get());
+                // Đường tắt trong bộ nhớ: hold token cũ (đã hủy giữ ghế hoặc hết hạn) bị từ chối mà không cần tới DB.
+                // Bộ nhớ không đủ để xác nhận ghế: câu UPDATE có điều kiện trong createTickets mới quyết định
+                if (!seatStateEngine.isHeldBy(screeningId, seatIds, holdId)) {
+                    bookingMetrics.recordTicketIssue(sample, "expired", 0);
+                    return new BookingResult(false, "Your seat hold has expired. Please select your seats again.");
                 }
 
-                if (needsRollback || tickets.size() != seatIds.size()) {
-                    // Nếu tạo vé thất bại, hủy các vé đã tạo và giải phóng ghế
-                    for (Ticket ticket : tickets) {
-                        bookingService.cancelTicket(ticket.getId(), user.getId());
-                    }
-                    rollbackReservations(screeningId, seatIds);
-                    return new BookingResult(false, "Không thể tạo vé. Vui lòng thử lại.");
+                // Ghi các thay đổi ghế còn chờ xuống DB trước, ngoài transaction tạo vé (tránh giữ hai connection cùng lúc)
+                seatStateEngine.flush(screeningId);
+
+                // Xác nhận tất cả ghế và tạo tất cả vé trong một transaction: thành công toàn bộ hoặc không tạo vé nào.
+                // DB kiểm tra từng ghế theo suất chiếu, ghế và holdId; số ghế xác nhận được khác số ghế đặt thì không tạo vé
+                List<Ticket> tickets = bookingService.createTickets(user, screeningId, seatIds, holdId);
+
+                if (tickets.size() != seatIds.size()) {
+                    // Lần giữ ghế không còn trong DB (hết hạn hoặc đã thay đổi): không có vé nào được tạo, chỉ cần giải phóng ghế
+                    rollbackReservations(screeningId, seatIds, holdId);
+                    bookingMetrics.recordTicketIssue(sample, "expired", 0);
+                    return new BookingResult(false, "Your seat hold has expired. Please select your seats again.");
                 }
 
+                bookingMetrics.recordTicketIssue(sample, "success", tickets.size());
                 return new BookingResult(true, "Đặt vé thành công", tickets);
 
+            } catch (SeatEngineBusyException e) {
+                // Chưa ghi được các ghế đang giữ xuống DB: chưa tạo vé nào, lần giữ ghế vẫn còn nên khách có thể thử lại
+                log.warn("Seat flush timed out before issuing tickets: screeningId={}: {}", screeningId, e.getMessage());
+                bookingMetrics.recordTicketIssue(sample, "overloaded", 0);
+                return new BookingResult(false, OVERLOADED_MESSAGE);
             } catch (Exception e) {
                 log.error("Error creating tickets: {}", e.getMessage());
+                bookingMetrics.recordTicketIssue(sample, "error", 0);
                 return new BookingResult(false, "Lỗi hệ thống: " + e.getMessage());
             }
         }, bookingExecutor);
     }
 
     /**
-     * Hủy đặt chỗ cho các ghế đã đặt trong trường hợp lỗi
+     * Hủy đặt chỗ cho các ghế đã đặt trong trường hợp lỗi.
+     * Không cần khóa: mọi thay đổi ghế của một suất chiếu đã được SeatStateEngine áp dụng lần lượt trên một luồng
      */
-    private void rollbackReservations(Long screeningId, List<Long> seatIds) {
+    private void rollbackReservations(Long screeningId, List<Long> seatIds, long holdId) {
         for (Long seatId : seatIds) {
-            String lockKey = screeningId + "-" + seatId;
-            ReentrantLock lock = seatLocks.computeIfAbsent(lockKey, k -> new ReentrantLock());
-            
             try {
-                if (lock.tryLock(5, TimeUnit.SECONDS)) {
-                    try {
-                        bookingService.releaseSeat(screeningId, seatId);
-                    } finally {
-                        lock.unlock();
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("Error rolling back reservation for seat {}: {}", seatId, e.getMessage());
+                bookingService.releaseHold(screeningId, seatId, holdId);
             } catch (Exception e) {
                 log.error("Error rolling back reservation for seat {}: {}", seatId, e.getMessage());
             }
@@ -151,6 +141,7 @@ public class ConcurrentBookingService {
     /**
      * Đóng thread pool khi ứng dụng shutdown
      */
+    @PreDestroy
     public void shutdown() {
         bookingExecutor.shutdown();
         try {
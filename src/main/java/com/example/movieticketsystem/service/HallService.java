@@ -0,0 +1,233 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.model.Hall;
+import com.example.movieticketsystem.model.Seat;
+import com.example.movieticketsystem.repository.HallRepository;
+import com.example.movieticketsystem.repository.ScreeningRepository;
+import com.example.movieticketsystem.repository.SeatRepository;
+import com.example.movieticketsystem.repository.SeatReservationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Halls and their seat templates. The seats of a hall are created once, from its layout,
+ * and every screening in the hall reserves those same seats.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HallService {
+
+    public static final int DEFAULT_SEATS_PER_ROW = 10;
+    public static final int MAX_SEATS = 1000;
+    public static final int MAX_ROWS = 52;
+    public static final int MAX_ROW_LENGTH = 60;
+
+    private final HallRepository hallRepository;
+    private final ScreeningRepository screeningRepository;
+    private final SeatRepository seatRepository;
+    private final SeatReservationRepository seatReservationRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public List<Hall> findAllHalls() {
+        return hallRepository.findAllByOrderByNumber();
+    }
+
+    public Optional<Hall> findHallById(Long id) {
+        return hallRepository.findById(id);
+    }
+
+    public List<Seat> findTemplateSeats(Hall hall) {
+        return seatRepository.findByHallIdOrderByRowNumberAscSeatNumberAsc(hall.getId());
+    }
+
+    /**
+     * The hall with this number; a hall that does not exist yet is created with the default layout
+     * (rows of 10 standard seats) holding the given number of seats
+     */
+    @Transactional
+    public Hall getOrCreateHall(int number, int defaultSeatCount) {
+        Optional<Hall> existing = hallRepository.findByNumber(number);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        Hall hall = new Hall();
+        hall.setNumber(number);
+        hall.setName("Hall " + number);
+        hall.setLayout(defaultLayout(Math.min(Math.max(defaultSeatCount, 1), MAX_SEATS)));
+        Hall saved = createSeats(hall);
+        log.info("Created hall {} with the default layout of {} seats", number, saved.getSeatCount());
+        return saved;
+    }
+
+    /**
+     * Lock the rows of the halls until the current transaction ends, so screenings scheduled into the same hall
+     * are checked for overlaps one transaction at a time
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void lockHalls(Collection<Integer> numbers) {
+        hallRepository.lockByNumbers(numbers);
+    }
+
+    /**
+     * Create a hall, or update its name and layout. The layout of a hall whose seats are already
+     * used by a screening cannot change. Throws IllegalArgumentException for an invalid layout,
+     * a taken hall number or a locked layout.
+     */
+    @Transactional
+    public Hall saveHall(Hall hall) {
+        String layout = normalizeLayout(hall.getLayout());
+        Optional<Hall> sameNumber = hallRepository.findByNumber(hall.getNumber());
+        if (sameNumber.isPresent() && !sameNumber.get().getId().equals(hall.getId())) {
+            throw new IllegalArgumentException("Hall " + hall.getNumber() + " already exists");
+        }
+
+        if (hall.getId() == null) {
+            hall.setLayout(layout);
+            return createSeats(hall);
+        }
+
+        Hall existing = hallRepository.findById(hall.getId())
+                .orElseThrow(() -> new IllegalArgumentException("Hall not found"));
+        boolean layoutChanged = !existing.getLayout().equals(layout) || !existing.getNumber().equals(hall.getNumber());
+        if (layoutChanged && isInUse(existing)) {
+            throw new IllegalArgumentException("Hall " + existing.getNumber()
+                    + " has screenings, only its name can change. Create a new hall for a different layout.");
+        }
+        existing.setName(hall.getName());
+        if (!layoutChanged) {
+            return hallRepository.save(existing);
+        }
+
+        seatRepository.deleteAllInBatch(findTemplateSeats(existing));
+        existing.setNumber(hall.getNumber());
+        existing.setLayout(layout);
+        return createSeats(existing);
+    }
+
+    /**
+     * Whether any screening uses the hall's seats: a sparse screening in the hall, or reservations on its seats
+     */
+    public boolean isInUse(Hall hall) {
+        return hall.getId() != null && (screeningRepository.existsByHallNumberAndSparseReservationsTrue(hall.getNumber())
+                || seatReservationRepository.existsBySeat_Hall_Id(hall.getId()));
+    }
+
+    private Hall createSeats(Hall hall) {
+        List<Seat> seats = buildSeats(hall);
+        hall.setSeatCount(seats.size());
+        Hall saved = hallRepository.save(hall);
+        // Inserted as JDBC batches (sequence ids, see Seat.ID_ALLOCATION_SIZE)
+        seatRepository.saveAll(seats);
+        entityManager.flush();
+        return saved;
+    }
+
+    /**
+     * Rows of 10 standard seats, the last row holding the remainder
+     */
+    public static String defaultLayout(int seatCount) {
+        StringBuilder layout = new StringBuilder();
+        for (int left = seatCount; left > 0; left -= DEFAULT_SEATS_PER_ROW) {
+            if (!layout.isEmpty()) {
+                layout.append('\n');
+            }
+            layout.append("S".repeat(Math.min(left, DEFAULT_SEATS_PER_ROW)));
+        }
+        return layout.toString();
+    }
+
+    /**
+     * Upper case, no trailing spaces and no blank lines; throws IllegalArgumentException if the layout is invalid
+     */
+    public static String normalizeLayout(String layout) {
+        if (layout == null || layout.isBlank()) {
+            throw new IllegalArgumentException("The layout must have at least one row");
+        }
+        List<String> rows = new ArrayList<>();
+        for (String line : layout.split("\\R")) {
+            String row = line.stripTrailing().toUpperCase();
+            if (row.isEmpty()) {
+                continue;
+            }
+            if (row.length() > MAX_ROW_LENGTH) {
+                throw new IllegalArgumentException("Row " + rowLabel(rows.size() + 1) + " is longer than " + MAX_ROW_LENGTH + " positions");
+            }
+            for (int i = 0; i < row.length(); i++) {
+                if (typeOf(row.charAt(i)) == null && !isGap(row.charAt(i))) {
+                    throw new IllegalArgumentException("Unknown character '" + row.charAt(i) + "' in row "
+                            + rowLabel(rows.size() + 1) + ", use S, V, A or . (gap)");
+                }
+            }
+            rows.add(row);
+        }
+        if (rows.size() > MAX_ROWS) {
+            throw new IllegalArgumentException("A hall can have at most " + MAX_ROWS + " rows");
+        }
+        String normalized = String.join("\n", rows);
+        long seats = normalized.chars().filter(c -> typeOf((char) c) != null).count();
+        if (seats == 0 || seats > MAX_SEATS) {
+            throw new IllegalArgumentException("A hall must have between 1 and " + MAX_SEATS + " seats");
+        }
+        return normalized;
+    }
+
+    /**
+     * Seats of a normalized layout, without saving them: rows lettered A, B, ... from the front,
+     * seats numbered from 1 left to right skipping gaps, columns counting gaps
+     */
+    static List<Seat> buildSeats(Hall hall) {
+        List<Seat> seats = new ArrayList<>(hall.getLayout().length());
+        String[] rows = hall.getLayout().split("\n");
+        for (int row = 0; row < rows.length; row++) {
+            String label = rowLabel(row + 1);
+            int seatNumber = 0;
+            for (int column = 0; column < rows[row].length(); column++) {
+                Seat.SeatType type = typeOf(rows[row].charAt(column));
+                if (type == null) {
+                    continue;
+                }
+                seatNumber++;
+                Seat seat = new Seat();
+                seat.setHall(hall);
+                seat.setHallNumber(hall.getNumber());
+                seat.setRowNumber(row + 1);
+                seat.setSeatNumber(seatNumber);
+                seat.setColumnNumber(column + 1);
+                seat.setSeatType(type);
+                seat.setSeatName(label + seatNumber);
+                seats.add(seat);
+            }
+        }
+        return seats;
+    }
+
+    // A..Z, then AA..AZ
+    private static String rowLabel(int row) {
+        return row <= 26 ? String.valueOf((char) ('A' + row - 1)) : "A" + (char) ('A' + row - 27);
+    }
+
+    private static Seat.SeatType typeOf(char c) {
+        return switch (c) {
+            case 'S' -> Seat.SeatType.STANDARD;
+            case 'V' -> Seat.SeatType.VIP;
+            case 'A' -> Seat.SeatType.ACCESSIBLE;
+            default -> null;
+        };
+    }
+
+    private static boolean isGap(char c) {
+        return c == '.' || c == ' ' || c == '_';
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.movieticketsystem.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timing wheel of seat hold expiries.
+ * Scheduling is O(1) from any thread; a single ticking thread calls {@link #advance}
+ * and only looks at the slots that came due since the previous tick.
+ */
+public class HoldExpiryWheel {
+
+    private final Queue<Entry>[] slots;
+    private final int mask;
+    private final long tickMillis;
+
+    private volatile long lastTick;
+
+    @SuppressWarnings("unchecked")
+    public HoldExpiryWheel(int slotCount, long tickMillis) {
+        int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        this.slots = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.tickMillis = tickMillis;
+        this.lastTick = System.currentTimeMillis() / tickMillis - 1;
+    }
+
+    public void schedule(long screeningId, long seatId, long expiryMillis) {
+        // Never place an entry in a slot that has already been processed for this revolution
+        long tick = Math.max(expiryMillis / tickMillis, lastTick + 1);
+        slots[(int) (tick & mask)].add(new Entry(screeningId, seatId, expiryMillis));
+    }
+
+    /**
+     * Collect the entries of every tick that has fully elapsed by now.
+     * Entries that belong to a later revolution of the wheel stay in their slot.
+     */
+    public List<Entry> advance(long nowMillis) {
+        long currentTick = nowMillis / tickMillis - 1;
+        List<Entry> due = new ArrayList<>();
+        // After a long pause one full revolution already covers every slot
+        long from = Math.max(lastTick + 1, currentTick - mask);
+
+        for (long tick = from; tick <= currentTick; tick++) {
+            Queue<Entry> slot = slots[(int) (tick & mask)];
+            List<Entry> notYetDue = null;
+            Entry entry;
+            while ((entry = slot.poll()) != null) {
+                if (entry.expiryMillis() <= nowMillis) {
+                    due.add(entry);
+                } else {
+                    if (notYetDue == null) {
+                        notYetDue = new ArrayList<>();
+                    }
+                    notYetDue.add(entry);
+                }
+            }
+            if (notYetDue != null) {
+                slot.addAll(notYetDue);
+            }
+        }
+        lastTick = Math.max(lastTick, currentTick);
+        return due;
+    }
+
+    public record Entry(long screeningId, long seatId, long expiryMillis) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.BookingHold;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Signed, stateless hold tokens for the booking steps after the seats are held, instead of keeping them in the session.
+ * A token is base64url(screeningId:seatIds:userId:holdId:holdExpiry in epoch millis) + "." + base64url(HMAC-SHA256 of that payload),
+ * so any node with the same secret can verify it.
+ */
+@Service
+@Slf4j
+public class HoldTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+
+    public HoldTokenService(@Value("${booking.hold-token.secret:}") String secret) {
+        byte[] keyBytes;
+        if (secret.isBlank()) {
+            // Tokens only verify on this node and until it restarts
+            log.warn("booking.hold-token.secret is not set, using a random key; set it when running more than one node");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    public String issue(BookingHold hold) {
+        String payload = hold.getScreeningId() + ":"
+                + hold.getSeatIds().stream().map(String::valueOf).collect(Collectors.joining(",")) + ":"
+                + hold.getUserId() + ":"
+                + hold.getHoldId() + ":"
+                + hold.getHoldExpiry().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * The hold in the token, if the token is intact, belongs to the user and has not expired
+     */
+    public Optional<BookingHold> verify(String token, Long userId) {
+        if (token == null || token.isBlank() || userId == null) {
+            return Optional.empty();
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return Optional.empty();
+        }
+        try {
+            byte[] payloadBytes = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+                return Optional.empty();
+            }
+
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split(":");
+            if (parts.length != 5) {
+                return Optional.empty();
+            }
+            List<Long> seatIds = new ArrayList<>();
+            for (String seatId : parts[1].split(",")) {
+                seatIds.add(Long.parseLong(seatId));
+            }
+            LocalDateTime holdExpiry = LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(parts[4])), ZoneId.systemDefault());
+            BookingHold hold = new BookingHold(Long.parseLong(parts[0]), seatIds, Long.parseLong(parts[2]),
+                    Long.parseLong(parts[3]), holdExpiry);
+
+            if (!userId.equals(hold.getUserId()) || !LocalDateTime.now().isBefore(holdExpiry)) {
+                return Optional.empty();
+            }
+            return Optional.of(hold);
+        } catch (IllegalArgumentException e) {
+            // Not base64 or not numbers: not a token we issued
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            // Mac instances are not thread safe, and cheap to create
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign hold token", e);
+        }
+    }
+}
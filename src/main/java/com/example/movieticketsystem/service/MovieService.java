@@ -1,9 +1,11 @@
 package com.example.movieticketsystem.service;
 
 import com.example.movieticketsystem.model.Movie;
+import com.example.movieticketsystem.model.Screening;
 import com.example.movieticketsystem.repository.MovieRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,6 +16,7 @@ import java.util.Optional;
 public class MovieService {
 
     private final MovieRepository movieRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<Movie> findAllMovies() {
         return movieRepository.findAll();
@@ -29,11 +32,16 @@ public class MovieService {
 
     @Transactional
     public Movie saveMovie(Movie movie) {
-        return movieRepository.save(movie);
+        Movie saved = movieRepository.save(movie);
+        eventPublisher.publishEvent(new CatalogChangedEvent(Movie.class, saved.getId()));
+        return saved;
     }
 
     @Transactional
     public void deleteMovie(Long id) {
         movieRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogChangedEvent(Movie.class, id));
+        // Screenings of the movie are deleted with it (cascade)
+        eventPublisher.publishEvent(new CatalogChangedEvent(Screening.class, null));
     }
 }
@@ -0,0 +1,129 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.SalesTotal;
+import com.example.movieticketsystem.dto.ScreeningOccupancy;
+import com.example.movieticketsystem.model.SalesRollupEvent;
+import com.example.movieticketsystem.repository.HallDailySalesRepository;
+import com.example.movieticketsystem.repository.MovieDailySalesRepository;
+import com.example.movieticketsystem.repository.SalesRollupEventRepository;
+import com.example.movieticketsystem.repository.ScreeningSalesRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sales analytics kept as rollups per screening, per movie and day and per hall and day,
+ * so reports read a row per group instead of scanning tickets.
+ * Sales and cancellations are recorded as events in the caller's ticket transaction, so an event commits or rolls back
+ * with its tickets (an insert, so bookings never wait on the shared rollup rows), and added to the rollups in batches,
+ * one transaction per batch, that also delete them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupService {
+
+    private final SalesRollupWriter salesRollupWriter;
+    private final ScreeningSalesRepository screeningSalesRepository;
+    private final MovieDailySalesRepository movieDailySalesRepository;
+    private final HallDailySalesRepository hallDailySalesRepository;
+    private final SalesRollupEventRepository salesRollupEventRepository;
+
+    // Sales events added to the rollups per transaction
+    @Value("${analytics.rollup.flush-batch-size:1000}")
+    private int flushBatchSize;
+
+    // One writer at a time, so a missing rollup row is only inserted once
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * Record tickets of a screening sold (negative for cancellations) for the rollups, dated by their purchase day.
+     * Must be called in the transaction that issues or cancels the tickets, so the sale and its event commit together.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordSales(Long screeningId, Long movieId, Integer hallNumber, LocalDate salesDate,
+                            int tickets, BigDecimal revenue) {
+        salesRollupEventRepository.save(new SalesRollupEvent(screeningId, movieId, hallNumber, salesDate, tickets, revenue));
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollup.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            int applied;
+            do {
+                applied = salesRollupWriter.applyEvents(flushBatchSize);
+            } while (applied == flushBatchSize);
+        } catch (Exception e) {
+            // The events stay in the table until they are applied
+            log.error("Error writing sales rollups, retrying on the next flush: {}", e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Recompute every rollup from the tickets table.
+     * Bookings committing while this runs can be counted twice or missed, so run it when sales are quiet.
+     */
+    public void rebuild() {
+        flushLock.lock();
+        try {
+            salesRollupWriter.rebuild();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Fill the rollups from existing tickets the first time the application starts with them
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (screeningSalesRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public List<SalesTotal> findMovieTotals(LocalDate from, LocalDate to) {
+        return movieDailySalesRepository.findMovieTotals(from, to);
+    }
+
+    public List<SalesTotal> findHallTotals(LocalDate from, LocalDate to) {
+        return hallDailySalesRepository.findHallTotals(from, to);
+    }
+
+    public List<SalesTotal> findDailyTotals(LocalDate from, LocalDate to) {
+        return movieDailySalesRepository.findDailyTotals(from, to);
+    }
+
+    /**
+     * Occupancy of the screenings starting between the two days (inclusive)
+     */
+    public List<ScreeningOccupancy> findScreeningOccupancy(LocalDate from, LocalDate to) {
+        return screeningSalesRepository.findOccupancy(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    }
+
+    public record Delta(long tickets, BigDecimal revenue) {
+
+        Delta plus(Delta other) {
+            return new Delta(tickets + other.tickets, revenue.add(other.revenue));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.model.HallDailySales;
+import com.example.movieticketsystem.model.MovieDailySales;
+import com.example.movieticketsystem.model.SalesRollupEvent;
+import com.example.movieticketsystem.model.ScreeningSales;
+import com.example.movieticketsystem.repository.HallDailySalesRepository;
+import com.example.movieticketsystem.repository.MovieDailySalesRepository;
+import com.example.movieticketsystem.repository.SalesRollupEventRepository;
+import com.example.movieticketsystem.repository.ScreeningSalesRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds the sales events recorded by {@link SalesRollupService} to the rollup tables
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupWriter {
+
+    private final ScreeningSalesRepository screeningSalesRepository;
+    private final MovieDailySalesRepository movieDailySalesRepository;
+    private final HallDailySalesRepository hallDailySalesRepository;
+    private final SalesRollupEventRepository salesRollupEventRepository;
+
+    /**
+     * Add up to limit of the oldest sales events to their rollup rows and delete them, in one transaction.
+     * Returns the number of events applied.
+     */
+    @Transactional
+    public int applyEvents(int limit) {
+        List<SalesRollupEvent> events = salesRollupEventRepository.findOldest(PageRequest.of(0, limit));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        Map<Long, SalesRollupService.Delta> screenings = new HashMap<>();
+        Map<MovieDailySales.Key, SalesRollupService.Delta> movieDays = new HashMap<>();
+        Map<HallDailySales.Key, SalesRollupService.Delta> hallDays = new HashMap<>();
+        for (SalesRollupEvent event : events) {
+            SalesRollupService.Delta delta = new SalesRollupService.Delta(event.getTickets(), event.getRevenue());
+            screenings.merge(event.getScreeningId(), delta, SalesRollupService.Delta::plus);
+            movieDays.merge(new MovieDailySales.Key(event.getMovieId(), event.getSalesDate()), delta, SalesRollupService.Delta::plus);
+            hallDays.merge(new HallDailySales.Key(event.getHallNumber(), event.getSalesDate()), delta, SalesRollupService.Delta::plus);
+        }
+        apply(screenings, movieDays, hallDays);
+        salesRollupEventRepository.deleteAllInBatch(events);
+        return events.size();
+    }
+
+    /**
+     * Add the deltas to their rollup rows, inserting rows that do not exist yet.
+     * Callers must not run this concurrently (see SalesRollupService's flush lock).
+     */
+    void apply(Map<Long, SalesRollupService.Delta> screenings,
+                      Map<MovieDailySales.Key, SalesRollupService.Delta> movieDays,
+                      Map<HallDailySales.Key, SalesRollupService.Delta> hallDays) {
+        screenings.forEach((screeningId, delta) -> {
+            if (screeningSalesRepository.addSales(screeningId, delta.tickets(), delta.revenue()) == 0) {
+                screeningSalesRepository.save(new ScreeningSales(screeningId, delta.tickets(), delta.revenue()));
+            }
+        });
+        movieDays.forEach((key, delta) -> {
+            if (movieDailySalesRepository.addSales(key.getMovieId(), key.getSalesDate(), delta.tickets(), delta.revenue()) == 0) {
+                movieDailySalesRepository.save(new MovieDailySales(key, delta.tickets(), delta.revenue()));
+            }
+        });
+        hallDays.forEach((key, delta) -> {
+            if (hallDailySalesRepository.addSales(key.getHallNumber(), key.getSalesDate(), delta.tickets(), delta.revenue()) == 0) {
+                hallDailySalesRepository.save(new HallDailySales(key, delta.tickets(), delta.revenue()));
+            }
+        });
+    }
+
+    /**
+     * Replace all rollup rows with totals computed from the tickets table, which already count the pending events
+     */
+    @Transactional
+    public void rebuild() {
+        salesRollupEventRepository.deleteAllInBatch();
+        screeningSalesRepository.deleteAllInBatch();
+        movieDailySalesRepository.deleteAllInBatch();
+        hallDailySalesRepository.deleteAllInBatch();
+        int screenings = screeningSalesRepository.rebuildFromTickets();
+        int movieDays = movieDailySalesRepository.rebuildFromTickets();
+        int hallDays = hallDailySalesRepository.rebuildFromTickets();
+        log.info("Rebuilt sales rollups from tickets: {} screenings, {} movie-days, {} hall-days", screenings, movieDays, hallDays);
+    }
+}
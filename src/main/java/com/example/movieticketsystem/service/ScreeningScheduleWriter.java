@@ -0,0 +1,141 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.model.Hall;
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.Seat;
+import com.example.movieticketsystem.repository.ScreeningRepository;
+import com.example.movieticketsystem.repository.SeatReservationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Validates and inserts the screenings planned by {@link ScreeningScheduler}, with their seat reservations, in one transaction
+ */
+@Service
+@RequiredArgsConstructor
+public class ScreeningScheduleWriter {
+
+    // Rows per JDBC batch for this transaction only; the driver turns each batch into one multi-row INSERT
+    private static final int BULK_BATCH_SIZE = 500;
+    // Screenings written between persistence context flushes, so memory does not grow with the schedule
+    private static final int SCREENINGS_PER_FLUSH = 20;
+    private static final int MAX_REPORTED_CONFLICTS = 5;
+    private static final DateTimeFormatter CONFLICT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final ScreeningRepository screeningRepository;
+    private final SeatReservationRepository seatReservationRepository;
+    private final SeatService seatService;
+    private final HallService hallService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Check the planned screenings for overlaps with each other and with the existing screenings in their halls, then insert everything.
+     * The halls' rows stay locked from the check to the commit, so two schedules for the same hall cannot both pass the check.
+     * Throws IllegalArgumentException, with nothing written, when any two screenings in a hall overlap.
+     * Halls without a seat template get the default layout with {@code totalSeats} seats.
+     * Returns the number of seat reservations created (none for sparse screenings).
+     */
+    @Transactional
+    public long insertAll(List<Screening> planned, int totalSeats) {
+        // First statement of the transaction: under REPEATABLE READ the overlap check's snapshot is then taken after
+        // the lock, and sees screenings committed by the previous holder. ScreeningScheduler creates missing halls
+        // beforehand, so every hall is locked here
+        hallService.lockHalls(planned.stream().map(Screening::getHallNumber).collect(Collectors.toSet()));
+
+        // Each hall is resolved once; its template seats are only read when every seat gets a row
+        boolean sparse = seatService.isSparseReservations();
+        Map<Integer, Hall> halls = new HashMap<>();
+        Map<Integer, List<Seat>> seatsByHall = new HashMap<>();
+        for (Screening screening : planned) {
+            Hall hall = halls.computeIfAbsent(screening.getHallNumber(), hallNumber -> hallService.getOrCreateHall(hallNumber, totalSeats));
+            if (!sparse) {
+                seatsByHall.computeIfAbsent(hall.getNumber(), hallNumber -> hallService.findTemplateSeats(hall));
+            }
+            screening.setTotalSeats(hall.getSeatCount());
+            screening.setSparseReservations(sparse);
+        }
+
+        checkOverlaps(planned);
+
+        entityManager.unwrap(Session.class).setJdbcBatchSize(BULK_BATCH_SIZE);
+        long reservations = 0;
+        for (int from = 0; from < planned.size(); from += SCREENINGS_PER_FLUSH) {
+            List<Screening> chunk = planned.subList(from, Math.min(from + SCREENINGS_PER_FLUSH, planned.size()));
+            screeningRepository.saveAll(chunk);
+            if (!sparse) {
+                for (Screening screening : chunk) {
+                    List<Seat> hallSeats = seatsByHall.get(screening.getHallNumber());
+                    seatReservationRepository.saveAll(seatService.buildReservations(screening, hallSeats));
+                    reservations += hallSeats.size();
+                }
+            }
+            // Seats stay detached after the clear; reservations only need their ids
+            entityManager.flush();
+            entityManager.clear();
+        }
+
+        eventPublisher.publishEvent(new CatalogChangedEvent(Screening.class, null));
+        return reservations;
+    }
+
+    private void checkOverlaps(List<Screening> planned) {
+        List<String> conflicts = new ArrayList<>();
+
+        // Among the planned screenings: sorted by start per hall, each must end before the next one starts
+        Map<Integer, List<Screening>> plannedByHall = planned.stream().collect(Collectors.groupingBy(Screening::getHallNumber));
+        for (List<Screening> hallScreenings : plannedByHall.values()) {
+            hallScreenings.sort(Comparator.comparing(Screening::getStartTime));
+            for (int i = 1; i < hallScreenings.size(); i++) {
+                if (overlaps(hallScreenings.get(i - 1), hallScreenings.get(i))) {
+                    conflicts.add(describe(hallScreenings.get(i), hallScreenings.get(i - 1)));
+                }
+            }
+        }
+
+        // Against the screenings already scheduled in those halls during the planned period
+        LocalDateTime windowStart = planned.stream().map(Screening::getStartTime).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime windowEnd = planned.stream().map(Screening::getEndTime).max(Comparator.naturalOrder()).orElseThrow();
+        List<Screening> existing = screeningRepository.findByHallNumberInAndStartTimeLessThanAndEndTimeGreaterThan(
+                plannedByHall.keySet(), windowEnd, windowStart);
+        for (Screening other : existing) {
+            for (Screening screening : plannedByHall.get(other.getHallNumber())) {
+                if (overlaps(screening, other)) {
+                    conflicts.add(describe(screening, other));
+                }
+            }
+        }
+
+        if (!conflicts.isEmpty()) {
+            String shown = String.join("; ", conflicts.subList(0, Math.min(MAX_REPORTED_CONFLICTS, conflicts.size())));
+            throw new IllegalArgumentException(conflicts.size() + " screening(s) would overlap in their hall: " + shown
+                    + (conflicts.size() > MAX_REPORTED_CONFLICTS ? "; ..." : ""));
+        }
+    }
+
+    private static boolean overlaps(Screening a, Screening b) {
+        return a.getStartTime().isBefore(b.getEndTime()) && b.getStartTime().isBefore(a.getEndTime());
+    }
+
+    private static String describe(Screening screening, Screening other) {
+        return "hall " + screening.getHallNumber() + " at " + screening.getStartTime().format(CONFLICT_TIME_FORMAT)
+                + " overlaps " + (other.getId() != null ? "screening #" + other.getId() : "the show")
+                + " at " + other.getStartTime().format(CONFLICT_TIME_FORMAT);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.ScreeningScheduleDTO;
+import com.example.movieticketsystem.dto.ScreeningScheduleResult;
+import com.example.movieticketsystem.model.Movie;
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.repository.MovieRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk scheduling: plans one screening per day × show time × hall and creates them all,
+ * in a single transaction of batched inserts (with a seat reservation per seat of the hall template unless reservations are sparse)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScreeningScheduler {
+
+    public static final int MAX_DAYS = 31;
+    public static final int MAX_SCREENINGS = 2000;
+
+    private final MovieRepository movieRepository;
+    private final HallService hallService;
+    private final ScreeningScheduleWriter screeningScheduleWriter;
+
+    /**
+     * Throws IllegalArgumentException, with nothing created, if the request is invalid or a hall would be double-booked
+     */
+    public ScreeningScheduleResult schedule(ScreeningScheduleDTO request) {
+        Movie movie = movieRepository.findById(request.getMovieId())
+                .orElseThrow(() -> new IllegalArgumentException("Movie not found"));
+        List<Screening> planned = plan(movie, request);
+        createMissingHalls(request.getHallNumbers(), request.getTotalSeats());
+
+        long start = System.nanoTime();
+        long seatReservations = screeningScheduleWriter.insertAll(planned, request.getTotalSeats());
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        ScreeningScheduleResult result = new ScreeningScheduleResult(planned.size(), seatReservations, elapsedMillis);
+        log.info("Scheduled {} screenings of movie {} ({} rows) in {} ms, {} rows/sec",
+                result.getScreenings(), movie.getId(), result.getRows(), elapsedMillis, result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * Halls that do not exist yet are created, each in a transaction of its own, before the schedule is written:
+     * the writer can then lock every hall it schedules into. Two requests creating the same hall at the same time
+     * conflict on its unique number; the one that loses finds the hall of the other on its second try.
+     */
+    private void createMissingHalls(List<Integer> hallNumbers, int seatCount) {
+        for (Integer hallNumber : hallNumbers) {
+            try {
+                hallService.getOrCreateHall(hallNumber, seatCount);
+            } catch (DataIntegrityViolationException e) {
+                log.info("Hall {} was created by another request at the same time, using that one", hallNumber);
+                hallService.getOrCreateHall(hallNumber, seatCount);
+            }
+        }
+    }
+
+    private List<Screening> plan(Movie movie, ScreeningScheduleDTO request) {
+        LocalDate firstDay = request.getFromDate();
+        LocalDate lastDay = request.getToDate();
+        if (lastDay.isBefore(firstDay)) {
+            throw new IllegalArgumentException("The last day must not be before the first day");
+        }
+        long days = ChronoUnit.DAYS.between(firstDay, lastDay) + 1;
+        if (days > MAX_DAYS) {
+            throw new IllegalArgumentException("A schedule can cover at most " + MAX_DAYS + " days");
+        }
+        List<Integer> halls = request.getHallNumbers();
+        List<LocalTime> showTimes = request.getShowTimeList();
+        long count = days * halls.size() * showTimes.size();
+        if (count > MAX_SCREENINGS) {
+            throw new IllegalArgumentException("A schedule can create at most " + MAX_SCREENINGS + " screenings, this one would create " + count);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Screening> planned = new ArrayList<>((int) count);
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            for (LocalTime showTime : showTimes) {
+                LocalDateTime startTime = day.atTime(showTime);
+                if (startTime.isBefore(now)) {
+                    throw new IllegalArgumentException("Show time " + startTime + " is in the past");
+                }
+                for (Integer hall : halls) {
+                    Screening screening = new Screening();
+                    screening.setMovie(movie);
+                    screening.setStartTime(startTime);
+                    screening.setEndTime(startTime.plusMinutes(movie.getDuration()));
+                    screening.setHallNumber(hall);
+                    screening.setPrice(request.getPrice());
+                    screening.setTotalSeats(request.getTotalSeats());
+                    planned.add(screening);
+                }
+            }
+        }
+        return planned;
+    }
+}
@@ -10,7 +10,10 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -24,6 +27,10 @@ public class ScreeningService {
     private final MovieRepository movieRepository;
     private final SeatReservationRepository seatReservationRepository;
     private final TicketRepository ticketRepository;
+    private final SeatStateEngine seatStateEngine;
+    private final HallService hallService;
+    private final SeatService seatService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -69,17 +76,27 @@ public class ScreeningService {
             existingScreening.setHallNumber(screening.getHallNumber());
             existingScreening.setPrice(screening.getPrice());
             
-            // Update total seats if provided
-            if (screening.getTotalSeats() != null) {
-                existingScreening.setTotalSeats(screening.getTotalSeats());
-            }
+            // Total seats follow the hall layout (the given number only sizes a hall created here)
+            existingScreening.setTotalSeats(hallSeatCount(screening));
+            existingScreening.setSparseReservations(seatService.isSparseReservations());
             
             // Save the updated screening
-            return screeningRepository.save(existingScreening);
+            Screening saved = screeningRepository.save(existingScreening);
+            eventPublisher.publishEvent(new CatalogChangedEvent(Screening.class, saved.getId()));
+            return saved;
         }
         
         // For new screening
-        return screeningRepository.save(screening);
+        screening.setTotalSeats(hallSeatCount(screening));
+        screening.setSparseReservations(seatService.isSparseReservations());
+        Screening saved = screeningRepository.save(screening);
+        eventPublisher.publishEvent(new CatalogChangedEvent(Screening.class, saved.getId()));
+        return saved;
+    }
+
+    private int hallSeatCount(Screening screening) {
+        int defaultSeats = screening.getTotalSeats() != null ? screening.getTotalSeats() : 100;
+        return hallService.getOrCreateHall(screening.getHallNumber(), defaultSeats).getSeatCount();
     }
 
     /**
@@ -107,6 +124,13 @@ public class ScreeningService {
             entityManager.createNativeQuery("DELETE FROM seat_reservations WHERE screening_id = :screeningId")
                     .setParameter("screeningId", id)
                     .executeUpdate();
+            // The engine drops the screening's seats once the delete is committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    seatStateEngine.evict(id);
+                }
+            });
 
             // Clear the session to avoid cache issues
             entityManager.flush();
@@ -118,6 +142,7 @@ public class ScreeningService {
             // Delete the screening itself if it still exists
             if (screening != null) {
                 entityManager.remove(screening);
+                eventPublisher.publishEvent(new CatalogChangedEvent(Screening.class, id));
                 return true;
             }
         }
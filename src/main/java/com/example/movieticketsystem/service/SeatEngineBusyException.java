@@ -0,0 +1,12 @@
+package com.example.movieticketsystem.service;
+
+/**
+ * Thrown when a screening's seat worker did not get to a command within booking.seat-engine.command-timeout-ms,
+ * or its journaled changes were not applied to the database in that time, e.g. while database writes are slow. The caller should be told to try again, like when the booking limiter is full.
+ */
+public class SeatEngineBusyException extends RuntimeException {
+
+    public SeatEngineBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.SeatMapSeat;
+import com.example.movieticketsystem.dto.SeatStateDelta;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fan-out of seat state changes to clients watching a screening's seat map over Server-Sent Events.
+ * Changes are coalesced per screening (latest state per seat) and sent as one event per flush,
+ * serialized once and written to every watcher from a single scheduler thread.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatEventHub {
+
+    private static final long EMITTER_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, Set<SseEmitter>> watchers = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, SeatMapSeat.State>> pendingDeltas = new ConcurrentHashMap<>();
+
+    /**
+     * Register a watcher for a screening. The browser reconnects by itself after the timeout.
+     */
+    public SseEmitter subscribe(Long screeningId) {
+        SseEmitter emitter = newEmitter();
+        watchers.compute(screeningId, (id, set) -> {
+            Set<SseEmitter> screeningWatchers = set != null ? set : ConcurrentHashMap.newKeySet();
+            screeningWatchers.add(emitter);
+            return screeningWatchers;
+        });
+
+        Runnable remove = () -> removeWatcher(screeningId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * Queue a seat change for the next flush; dropped when nobody watches the screening
+     */
+    public void publish(long screeningId, long seatId, SeatMapSeat.State state) {
+        if (!watchers.containsKey(screeningId)) {
+            return;
+        }
+        // Inside compute, so the change cannot land in a map flush has already taken
+        pendingDeltas.compute(screeningId, (id, deltas) -> {
+            Map<Long, SeatMapSeat.State> screeningDeltas = deltas != null ? deltas : new HashMap<>();
+            screeningDeltas.put(seatId, state);
+            return screeningDeltas;
+        });
+    }
+
+    public int getWatcherCount(Long screeningId) {
+        Set<SseEmitter> screeningWatchers = watchers.get(screeningId);
+        return screeningWatchers != null ? screeningWatchers.size() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${booking.seat-events.flush-interval-ms:250}")
+    public void flush() {
+        for (Long screeningId : pendingDeltas.keySet()) {
+            // Taken atomically: later changes go into a new map for the next flush
+            Map<Long, SeatMapSeat.State> deltas = pendingDeltas.remove(screeningId);
+            Set<SseEmitter> screeningWatchers = watchers.get(screeningId);
+            if (deltas == null || deltas.isEmpty() || screeningWatchers == null) {
+                continue;
+            }
+
+            List<SeatStateDelta> payload = new ArrayList<>(deltas.size());
+            deltas.forEach((seatId, state) -> payload.add(new SeatStateDelta(seatId, state)));
+
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(payload);
+            } catch (JsonProcessingException e) {
+                log.error("Error serializing seat events for screening {}: {}", screeningId, e.getMessage());
+                continue;
+            }
+
+            for (SseEmitter emitter : screeningWatchers) {
+                try {
+                    emitter.send(SseEmitter.event().name("seats").data(json));
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away; the completion callback may not fire for a broken connection
+                    removeWatcher(screeningId, emitter);
+                }
+            }
+        }
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+    }
+
+    private void removeWatcher(Long screeningId, SseEmitter emitter) {
+        watchers.computeIfPresent(screeningId, (id, set) -> {
+            set.remove(emitter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
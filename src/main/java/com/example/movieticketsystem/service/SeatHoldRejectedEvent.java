@@ -0,0 +1,10 @@
+package com.example.movieticketsystem.service;
+
+import java.util.Collection;
+
+/**
+ * Published when a journaled seat hold could not be applied to the database because its seats were taken meanwhile
+ * (a row changed outside SeatStateEngine). The hold was already granted in memory and has to be reverted there.
+ */
+public record SeatHoldRejectedEvent(Long screeningId, Collection<Long> seatIds, long holdId) {
+}
@@ -0,0 +1,309 @@
+package com.example.movieticketsystem.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of seat holds and releases in memory-mapped segment files (seats-&lt;first seq&gt;.journal).
+ * Records have a fixed size and a checksum. Before {@link #append} returns, the batch and every batch appended
+ * before it are forced to disk (group commit: one fsync covers all batches written since the last one), so the
+ * journal on disk never has a gap in front of an acknowledged batch. Only whole batches are read back, so a batch
+ * torn by a crash is dropped as a whole. Segments that were fully applied to the database are deleted (see SeatWriteBehind).
+ */
+@Slf4j
+public class SeatJournal {
+
+    static final byte HOLD = 1;
+    static final byte RELEASE = 2;
+
+    // seq, type, flags, seats in the hold (unsigned short), screening id, seat id, hold expiry, hold id, CRC32C of the rest
+    static final int RECORD_SIZE = 48;
+    private static final int CHECKSUM_OFFSET = 44;
+    private static final byte LAST_IN_BATCH = 1;
+    private static final String PREFIX = "seats-";
+    private static final String SUFFIX = ".journal";
+    private static final String NODE_FILE = "node";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final String nodeId;
+    // Oldest first; the last one is the segment being appended to
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private List<Entry> recovered;
+    private Segment current;
+    private long nextSeq = 1;
+    // Forces run one at a time and in order, so the disk holds every batch up to forcedSeq
+    private final Object forceLock = new Object();
+    // Guarded by forceLock
+    private long forcedSeq;
+
+    /**
+     * Open the journal in the directory, reading back the batches a previous run left there (see {@link #takeRecovered}),
+     * and start a new segment for appends
+     */
+    public SeatJournal(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("Journal segments must hold at least one record");
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+        this.nodeId = readNodeId(directory.resolve(NODE_FILE));
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(SeatJournal::isSegment)
+                    .sorted(Comparator.comparingLong(SeatJournal::firstSeq))
+                    .toList();
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (Path file : files) {
+            Segment segment = new Segment(file, firstSeq(file));
+            segment.lastSeq = segment.firstSeq - 1;
+            read(segment, entries);
+            segments.add(segment);
+            nextSeq = Math.max(nextSeq, segment.lastSeq + 1);
+        }
+        this.recovered = entries;
+        this.forcedSeq = nextSeq - 1;
+        roll();
+    }
+
+    /**
+     * Id of the node the journal belongs to, created with the journal and kept in its directory
+     */
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * The entries read back when the journal was opened, in sequence order; only returned once
+     */
+    public synchronized List<Entry> takeRecovered() {
+        List<Entry> entries = recovered;
+        recovered = List.of();
+        return entries;
+    }
+
+    /**
+     * Sequence the next appended entry gets
+     */
+    public synchronized long nextSeq() {
+        return nextSeq;
+    }
+
+    /**
+     * Append the entries as one batch and force them to disk. Returns them numbered with their sequence.
+     */
+    public List<Entry> append(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        int length = entries.size() * RECORD_SIZE;
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("Batch of " + entries.size() + " seat changes does not fit in a journal segment");
+        }
+
+        List<Entry> numbered = new ArrayList<>(entries.size());
+        synchronized (this) {
+            if (current.position + length > segmentSize) {
+                roll();
+            }
+            int offset = current.position;
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i).withSeq(nextSeq++);
+                write(current.buffer, offset + i * RECORD_SIZE, entry, i == entries.size() - 1);
+                numbered.add(entry);
+            }
+            current.position += length;
+            current.lastSeq = nextSeq - 1;
+        }
+        forceThrough(numbered.get(numbered.size() - 1).seq());
+        return numbered;
+    }
+
+    /**
+     * Force everything appended so far to disk, unless an earlier force already covered the given sequence.
+     * Appends are not held up by the fsync; the batches they write meanwhile reach the disk with the next one.
+     */
+    private void forceThrough(long seq) {
+        synchronized (forceLock) {
+            if (forcedSeq >= seq) {
+                return;
+            }
+            List<Segment> unforced = new ArrayList<>();
+            List<Integer> ends = new ArrayList<>();
+            long written;
+            synchronized (this) {
+                for (Segment segment : segments) {
+                    if (segment.buffer != null && segment.forcedPosition < segment.position) {
+                        unforced.add(segment);
+                        ends.add(segment.position);
+                    }
+                }
+                written = nextSeq - 1;
+            }
+            // Oldest segment first, so the disk never has a later batch without the ones before it
+            for (int i = 0; i < unforced.size(); i++) {
+                Segment segment = unforced.get(i);
+                force(segment.buffer, segment.forcedPosition, ends.get(i) - segment.forcedPosition);
+                segment.forcedPosition = ends.get(i);
+            }
+            forcedSeq = written;
+        }
+    }
+
+    /**
+     * Write a range of a segment through to the disk
+     */
+    void force(MappedByteBuffer buffer, int offset, int length) {
+        buffer.force(offset, length);
+    }
+
+    /**
+     * Delete the segments whose entries are all applied up to the given sequence, except the one being appended to
+     */
+    public synchronized void deleteApplied(long appliedSeq) {
+        while (segments.size() > 1 && segments.peekFirst().lastSeq <= appliedSeq) {
+            Segment segment = segments.pollFirst();
+            try {
+                Files.deleteIfExists(segment.file);
+            } catch (IOException e) {
+                log.warn("Could not delete applied seat journal segment {}: {}", segment.file, e.getMessage());
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        Path file = directory.resolve(PREFIX + nextSeq + SUFFIX);
+        // Left by a run that stopped before completing a batch in it: nothing in it was read back
+        if (Files.deleteIfExists(file)) {
+            segments.removeIf(segment -> segment.file.equals(file));
+        }
+        Segment segment = new Segment(file, nextSeq);
+        segment.lastSeq = nextSeq - 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segments.add(segment);
+        current = segment;
+    }
+
+    /**
+     * Read the whole batches of a segment, up to the first record that is missing, torn or out of sequence
+     */
+    private static void read(Segment segment, List<Entry> entries) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment.file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        List<Entry> batch = new ArrayList<>();
+        long expectedSeq = segment.firstSeq;
+        for (int offset = 0; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+            long seq = buffer.getLong(offset);
+            if (seq != expectedSeq || buffer.getInt(offset + CHECKSUM_OFFSET) != checksum(buffer, offset)) {
+                break;
+            }
+            batch.add(new Entry(seq, buffer.get(offset + 8), buffer.getLong(offset + 12), buffer.getLong(offset + 20),
+                    buffer.getLong(offset + 36), buffer.getLong(offset + 28), Short.toUnsignedInt(buffer.getShort(offset + 10))));
+            if ((buffer.get(offset + 9) & LAST_IN_BATCH) != 0) {
+                entries.addAll(batch);
+                batch.clear();
+                segment.lastSeq = seq;
+            }
+            expectedSeq++;
+        }
+        if (!batch.isEmpty()) {
+            log.warn("Dropping {} seat journal records of a batch that was not completed in {}", batch.size(), segment.file);
+        }
+    }
+
+    private static void write(ByteBuffer buffer, int offset, Entry entry, boolean lastInBatch) {
+        buffer.putLong(offset, entry.seq());
+        buffer.put(offset + 8, entry.type());
+        buffer.put(offset + 9, lastInBatch ? LAST_IN_BATCH : 0);
+        buffer.putShort(offset + 10, (short) entry.holdSize());
+        buffer.putLong(offset + 12, entry.screeningId());
+        buffer.putLong(offset + 20, entry.seatId());
+        buffer.putLong(offset + 28, entry.expiryMillis());
+        buffer.putLong(offset + 36, entry.holdId());
+        buffer.putInt(offset + CHECKSUM_OFFSET, checksum(buffer, offset));
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, CHECKSUM_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private static String readNodeId(Path file) throws IOException {
+        if (Files.exists(file)) {
+            return Files.readString(file).trim();
+        }
+        String nodeId = UUID.randomUUID().toString();
+        Files.writeString(file, nodeId);
+        return nodeId;
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX)
+                && name.substring(PREFIX.length(), name.length() - SUFFIX.length()).chars().allMatch(Character::isDigit);
+    }
+
+    private static long firstSeq(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * One seat change. The seats of a hold are consecutive entries; holdSize is their number (0 for a release).
+     */
+    public record Entry(long seq, byte type, long screeningId, long seatId, long holdId, long expiryMillis, int holdSize) {
+
+        static Entry hold(long screeningId, long seatId, long holdId, long expiryMillis, int holdSize) {
+            return new Entry(0, HOLD, screeningId, seatId, holdId, expiryMillis, holdSize);
+        }
+
+        static Entry release(long screeningId, long seatId) {
+            return new Entry(0, RELEASE, screeningId, seatId, 0, 0, 0);
+        }
+
+        Entry withSeq(long seq) {
+            return new Entry(seq, type, screeningId, seatId, holdId, expiryMillis, holdSize);
+        }
+    }
+
+    private static final class Segment {
+        final Path file;
+        final long firstSeq;
+        // Last sequence in the segment that belongs to a complete batch
+        long lastSeq;
+        // Only mapped for the segments appended to by this run
+        MappedByteBuffer buffer;
+        int position;
+        // Guarded by forceLock: bytes up to here are on disk
+        int forcedPosition;
+
+        Segment(Path file, long firstSeq) {
+            this.file = file;
+            this.firstSeq = firstSeq;
+        }
+    }
+}
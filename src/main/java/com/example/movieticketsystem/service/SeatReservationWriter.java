@@ -0,0 +1,175 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.Seat;
+import com.example.movieticketsystem.model.SeatJournalCheckpoint;
+import com.example.movieticketsystem.model.SeatReservation;
+import com.example.movieticketsystem.repository.SeatJournalCheckpointRepository;
+import com.example.movieticketsystem.repository.SeatReservationRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Persists seat state changes produced by {@link SeatStateEngine} to the seat_reservations table
+ */
+@Service
+@RequiredArgsConstructor
+public class SeatReservationWriter {
+
+    private final SeatReservationRepository seatReservationRepository;
+    private final SeatJournalCheckpointRepository seatJournalCheckpointRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Claim all seats with a single conditional UPDATE.
+     * Seats of a sparse screening that have no row yet are inserted already held; the unique
+     * (screening, seat) key rejects a row inserted concurrently by another instance.
+     * Throws (and rolls back) unless every existing row was free or held with an expired hold.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void holdSeats(Long screeningId, Collection<Long> seatIds, long holdId, LocalDateTime expiry) {
+        claim(screeningId, List.of(new Hold(seatIds, holdId, expiry)));
+    }
+
+    /**
+     * Write one batch of a screening's seat changes in a single transaction: the releases first, then the holds,
+     * claimed as in {@link #holdSeats}. Throws (and rolls back the whole batch) if any hold cannot be claimed.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void writeBatch(Long screeningId, Collection<Long> releasedSeatIds, List<Hold> holds) {
+        if (!releasedSeatIds.isEmpty()) {
+            seatReservationRepository.markReleased(screeningId, releasedSeatIds);
+        }
+        if (!holds.isEmpty()) {
+            claim(screeningId, holds);
+        }
+    }
+
+    /**
+     * Apply seat changes replayed from a node's seat journal in one transaction, in the given order, together with
+     * the journal sequence they reach, so each change is applied exactly once (see SeatWriteBehind).
+     * Holds whose seats are no longer free are skipped and returned instead of failing the others;
+     * holds that expired meanwhile are skipped.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public List<RejectedHold> applyJournal(String node, long appliedSeq, List<Changes> changes) {
+        LocalDateTime now = LocalDateTime.now();
+        List<RejectedHold> rejected = new ArrayList<>();
+        for (Changes change : changes) {
+            if (!change.releasedSeatIds().isEmpty()) {
+                seatReservationRepository.markReleased(change.screeningId(), change.releasedSeatIds());
+            }
+            List<Hold> live = change.holds().stream().filter(hold -> hold.expiry().isAfter(now)).toList();
+            if (live.isEmpty()) {
+                continue;
+            }
+            Set<Long> unavailable = new HashSet<>(seatReservationRepository.findUnavailableSeatIds(change.screeningId(),
+                    live.stream().flatMap(hold -> hold.seatIds().stream()).toList(), now));
+            List<Hold> accepted = new ArrayList<>();
+            for (Hold hold : live) {
+                if (hold.seatIds().stream().anyMatch(unavailable::contains)) {
+                    rejected.add(new RejectedHold(change.screeningId(), hold));
+                } else {
+                    accepted.add(hold);
+                }
+            }
+            if (!accepted.isEmpty()) {
+                claim(change.screeningId(), accepted);
+            }
+        }
+        seatJournalCheckpointRepository.save(new SeatJournalCheckpoint(node, appliedSeq));
+        return rejected;
+    }
+
+    /**
+     * One conditional UPDATE per hold, then for the whole batch one query for the seats without a row
+     * and one insert of those rows, so the cost of a batch does not grow with the rows inserted before
+     */
+    private void claim(Long screeningId, List<Hold> holds) {
+        LocalDateTime now = LocalDateTime.now();
+        int[] updated = new int[holds.size()];
+        List<Long> unclaimed = new ArrayList<>();
+        for (int i = 0; i < holds.size(); i++) {
+            Hold hold = holds.get(i);
+            updated[i] = seatReservationRepository.holdSeats(screeningId, hold.seatIds(), hold.holdId(), hold.expiry(), now);
+            if (updated[i] != hold.seatIds().size()) {
+                unclaimed.addAll(hold.seatIds());
+            }
+        }
+        if (unclaimed.isEmpty()) {
+            return;
+        }
+
+        Set<Long> withRow = new HashSet<>(seatReservationRepository.findSeatIds(screeningId, unclaimed));
+        Screening screening = entityManager.getReference(Screening.class, screeningId);
+        List<SeatReservation> created = new ArrayList<>();
+        for (int i = 0; i < holds.size(); i++) {
+            Hold hold = holds.get(i);
+            if (updated[i] == hold.seatIds().size()) {
+                continue;
+            }
+            long existing = hold.seatIds().stream().filter(withRow::contains).count();
+            if (existing != updated[i]) {
+                throw new IllegalStateException("Only " + updated[i] + " of " + hold.seatIds().size() + " seats could be held");
+            }
+            for (Long seatId : hold.seatIds()) {
+                if (!withRow.contains(seatId)) {
+                    SeatReservation reservation = new SeatReservation();
+                    reservation.setScreening(screening);
+                    reservation.setSeat(entityManager.getReference(Seat.class, seatId));
+                    reservation.setReserved(true);
+                    reservation.setReservationExpiry(hold.expiry());
+                    reservation.setHoldId(hold.holdId());
+                    created.add(reservation);
+                }
+            }
+        }
+        seatReservationRepository.saveAll(created);
+        entityManager.flush();
+        // The UPDATEs of later holds in the transaction would otherwise dirty-check every row inserted so far
+        entityManager.clear();
+    }
+
+    /**
+     * Release a batch of held seats with a single UPDATE
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void releaseSeats(Long screeningId, Collection<Long> seatIds) {
+        seatReservationRepository.markReleased(screeningId, seatIds);
+    }
+
+    /**
+     * Release every hold that expired before the given time with a single UPDATE
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int releaseExpiredHolds(LocalDateTime now) {
+        return seatReservationRepository.releaseExpiredHolds(now);
+    }
+
+    /**
+     * Seats claimed together until the expiry, under the hold's id
+     */
+    public record Hold(Collection<Long> seatIds, long holdId, LocalDateTime expiry) {
+    }
+
+    /**
+     * Seat changes of one screening, no seat twice: the releases are written before the holds
+     */
+    public record Changes(Long screeningId, Collection<Long> releasedSeatIds, List<Hold> holds) {
+    }
+
+    public record RejectedHold(Long screeningId, Hold hold) {
+    }
+}
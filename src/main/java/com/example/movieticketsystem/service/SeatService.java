@@ -1,5 +1,6 @@
 package com.example.movieticketsystem.service;
 
+import com.example.movieticketsystem.model.Hall;
 import com.example.movieticketsystem.model.Screening;
 import com.example.movieticketsystem.model.Seat;
 import com.example.movieticketsystem.model.SeatReservation;
@@ -9,14 +10,14 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -24,10 +25,16 @@ public class SeatService {
 
     private final SeatRepository seatRepository;
     private final SeatReservationRepository seatReservationRepository;
+    private final SeatStateEngine seatStateEngine;
+    private final HallService hallService;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    // New screenings store only held and sold seats (see Screening.sparseReservations)
+    @Value("${booking.seat-reservations.sparse:true}")
+    private boolean sparseReservations;
+
     public List<Seat> findAllSeats() {
         return seatRepository.findAll();
     }
@@ -46,36 +53,31 @@ public class SeatService {
     }
 
     /**
-     * Create seats for a specific screening configuration
+     * Storage mode for screenings created from now on
      */
-    @Transactional
-    public List<Seat> createSeatsForScreening(int hallNumber, int totalSeats) {
-        List<Seat> newSeats = new ArrayList<>();
-        final int SEATS_PER_ROW = 10;
-        int numberOfRows = (int) Math.ceil((double) totalSeats / SEATS_PER_ROW);
-
-        for (int row = 0; row < numberOfRows; row++) {
-            char rowLetter = (char) ('A' + row);
-            int seatsInThisRow = (row == numberOfRows - 1 && totalSeats % SEATS_PER_ROW != 0) 
-                ? totalSeats % SEATS_PER_ROW 
-                : SEATS_PER_ROW;
-
-            for (int seatNum = 1; seatNum <= seatsInThisRow; seatNum++) {
-                Seat seat = new Seat();
-                seat.setHallNumber(hallNumber);
-                seat.setRowNumber(row + 1);
-                seat.setSeatNumber(seatNum);
-                seat.setSeatName(String.format("%c%d", rowLetter, seatNum));
-                newSeats.add(seatRepository.save(seat));
-            }
+    public boolean isSparseReservations() {
+        return sparseReservations;
+    }
+
+    /**
+     * One free reservation row per seat of the screening, without saving them
+     */
+    public List<SeatReservation> buildReservations(Screening screening, List<Seat> seats) {
+        List<SeatReservation> newReservations = new ArrayList<>(seats.size());
+        for (Seat seat : seats) {
+            SeatReservation reservation = new SeatReservation();
+            reservation.setScreening(screening);
+            reservation.setSeat(seat);
+            reservation.setReserved(false);
+            // Version stays null so saveAll persists (a set version makes Spring Data merge, one SELECT per row)
+            newReservations.add(reservation);
         }
-        
-        entityManager.flush();
-        return newSeats;
+        return newReservations;
     }
 
     /**
-     * Initialize seat reservations for a screening with custom seat layout
+     * Initialize seat reservations for a screening: one per seat of its hall's template,
+     * or none for a sparse screening, whose rows are created when seats are first held
      */
     @Transactional
     public void initializeSeatReservations(Screening screening) {
@@ -87,22 +89,21 @@ public class SeatService {
         entityManager.flush();
         entityManager.clear();
 
-        // Create new seats for this screening
-        List<Seat> seats = createSeatsForScreening(screening.getHallNumber(), screening.getTotalSeats());
-
-        // Create new reservations for each seat
-        List<SeatReservation> newReservations = new ArrayList<>();
-        for (Seat seat : seats) {
-            SeatReservation reservation = new SeatReservation();
-            reservation.setScreening(screening);
-            reservation.setSeat(seat);
-            reservation.setReserved(false);
-            reservation.setVersion(0);
-            newReservations.add(reservation);
+        // Seats come from the hall template, nothing is created per screening
+        Hall hall = hallService.getOrCreateHall(screening.getHallNumber(), screening.getTotalSeats());
+        if (!screening.isSparseReservations()) {
+            // Save all reservations in batch
+            seatReservationRepository.saveAll(buildReservations(screening, hallService.findTemplateSeats(hall)));
+            entityManager.flush();
         }
 
-        // Save all reservations in batch
-        seatReservationRepository.saveAll(newReservations);
-        entityManager.flush();
+        // Seat layout changed, the engine reloads it on next access; not before the new rows are committed
+        Long screeningId = screening.getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                seatStateEngine.evict(screeningId);
+            }
+        });
     }
 }
@@ -0,0 +1,917 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.SeatMapSeat;
+import com.example.movieticketsystem.dto.SeatStateView;
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.Seat;
+import com.example.movieticketsystem.repository.ScreeningRepository;
+import com.example.movieticketsystem.repository.SeatRepository;
+import com.example.movieticketsystem.repository.SeatReservationRepository;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory seat state for active screenings.
+ * Every change to a screening's seats is a command in that screening's mailbox, applied one at a time on the
+ * screening's seat worker (see SeatWorkers), so seat changes never wait on each other's locks.
+ * Holds are decided in memory and the holds accepted in one pass are recorded together before they are answered:
+ * in the seat journal, applied to seat_reservations in the background (SeatWriteBehind), or with the journal disabled
+ * claimed in seat_reservations in one transaction; releases are written through asynchronously in batches.
+ * Reads (seat map, availability) do not go through the mailbox: they read the current state directly.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatStateEngine {
+
+    static final byte FREE = 0;
+    static final byte HELD = 1;
+    static final byte CONFIRMED = 2;
+
+    private static final long HOLD_EXPIRY_TICK_MILLIS = 1000;
+    // Commands applied per turn of a screening, so one busy screening does not starve the others on its worker
+    private static final int MAX_COMMANDS_PER_RUN = 256;
+
+    private final ScreeningRepository screeningRepository;
+    private final SeatReservationRepository seatReservationRepository;
+    private final SeatRepository seatRepository;
+    private final SeatReservationWriter seatReservationWriter;
+    private final SeatEventHub seatEventHub;
+    private final BookingMetrics bookingMetrics;
+    private final SeatWorkers seatWorkers;
+    private final SeatWriteBehind seatWriteBehind;
+
+    // How long a caller waits for its command to be applied before giving up (see SeatEngineBusyException)
+    @Value("${booking.seat-engine.command-timeout-ms:5000}")
+    private long commandTimeoutMillis;
+
+    private final Map<Long, ScreeningSeatState> screenings = new ConcurrentHashMap<>();
+    // 1024 one-second slots cover the 15 minute hold timeout in a single revolution
+    private final HoldExpiryWheel expiryWheel = new HoldExpiryWheel(1024, HOLD_EXPIRY_TICK_MILLIS);
+
+    /**
+     * Rebuild seat state for all screenings that have not ended yet
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Seat changes journaled before a crash first, so the state is loaded with them
+        seatWriteBehind.recover();
+        List<Screening> activeScreenings = screeningRepository.findByEndTimeAfter(LocalDateTime.now());
+        for (Screening screening : activeScreenings) {
+            ScreeningSeatState state = loadState(screening);
+            screenings.put(screening.getId(), state);
+            bindMetrics(state);
+        }
+        log.info("Seat state engine loaded {} active screenings", activeScreenings.size());
+    }
+
+    /**
+     * Hold all given seats until the expiry under the given hold id, or none of them.
+     * Returns once the hold is decided and, if granted, claimed in the database.
+     * Throws SeatEngineBusyException if that takes longer than the command timeout; the hold is then not kept.
+     */
+    public boolean tryHoldAll(Long screeningId, Collection<Long> seatIds, long holdId, LocalDateTime expiry) {
+        ScreeningSeatState state = getState(screeningId);
+        if (state == null || seatIds.isEmpty()) {
+            return false;
+        }
+
+        long[] ids = seatIds.stream().mapToLong(Long::longValue).distinct().toArray();
+        // Written to the database as it is kept here, in whole seconds (see toEpochMillis)
+        LocalDateTime holdExpiry = expiry.truncatedTo(ChronoUnit.SECONDS);
+        CompletableFuture<Boolean> held = new CompletableFuture<>();
+        send(state, new HoldSeats(ids, holdId, toEpochMillis(holdExpiry), holdExpiry, held));
+        try {
+            return await(held);
+        } catch (SeatEngineBusyException e) {
+            // Answered first: the worker will skip the hold, or release it once written (see holdWritten)
+            if (held.complete(false)) {
+                throw e;
+            }
+            return held.join();
+        }
+    }
+
+    /**
+     * Release a held seat. Confirmed seats are never released here.
+     */
+    public boolean release(Long screeningId, Long seatId) {
+        ScreeningSeatState state = getState(screeningId);
+        if (state == null) {
+            return false;
+        }
+
+        CompletableFuture<Boolean> released = new CompletableFuture<>();
+        send(state, new ReleaseSeat(seatId, null, released));
+        return await(released);
+    }
+
+    /**
+     * Release a seat only while it is still under the given hold,
+     * so a stale hold token cannot release a hold someone else has made since
+     */
+    public boolean releaseHold(Long screeningId, Long seatId, long holdId) {
+        ScreeningSeatState state = getState(screeningId);
+        if (state == null) {
+            return false;
+        }
+
+        CompletableFuture<Boolean> released = new CompletableFuture<>();
+        send(state, new ReleaseSeat(seatId, holdId, released));
+        return await(released);
+    }
+
+    /**
+     * Whether every seat is still under the given hold, and that hold has not run out
+     */
+    public boolean isHeldBy(Long screeningId, Collection<Long> seatIds, long holdId) {
+        ScreeningSeatState state = getState(screeningId);
+        if (state == null) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        return state.read(() -> {
+            for (Long seatId : seatIds) {
+                int index = state.indexOf(seatId);
+                if (index < 0 || state.states[index] != HELD || state.holdIds[index] != holdId
+                        || state.holdExpiry[index] <= now) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Record a seat that was confirmed directly in the database (after the commit)
+     */
+    public void markConfirmed(Long screeningId, Long seatId) {
+        updateLoadedState(screeningId, seatId, CONFIRMED);
+    }
+
+    /**
+     * Record a seat that was freed directly in the database, e.g. ticket canceled (after the commit)
+     */
+    public void markFree(Long screeningId, Long seatId) {
+        updateLoadedState(screeningId, seatId, FREE);
+    }
+
+    public boolean isAvailable(Long screeningId, Long seatId) {
+        ScreeningSeatState state = getState(screeningId);
+        if (state == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        return state.read(() -> {
+            int index = state.indexOf(seatId);
+            return index >= 0 && state.isAvailable(index, now);
+        });
+    }
+
+    public int countAvailable(Long screeningId) {
+        ScreeningSeatState state = getState(screeningId);
+        if (state == null) {
+            return 0;
+        }
+        return state.count(FREE);
+    }
+
+    /**
+     * Seat map of a screening grouped by row, in row and seat number order.
+     * Served from memory; only a screening that is not loaded yet costs one query.
+     */
+    public Map<Integer, List<SeatMapSeat>> getSeatMap(Long screeningId) {
+        ScreeningSeatState state = getState(screeningId);
+        if (state == null) {
+            return Map.of();
+        }
+
+        long now = System.currentTimeMillis();
+        byte[] states = state.read(() -> {
+            byte[] copy = new byte[state.seatIds.length];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = state.states[i] == HELD && state.holdExpiry[i] <= now ? FREE : state.states[i];
+            }
+            return copy;
+        });
+
+        Map<Integer, List<SeatMapSeat>> seatRows = new LinkedHashMap<>();
+        for (int index : state.displayOrder) {
+            SeatMapSeat.State seatState = switch (states[index]) {
+                case HELD -> SeatMapSeat.State.HELD;
+                case CONFIRMED -> SeatMapSeat.State.SOLD;
+                default -> SeatMapSeat.State.AVAILABLE;
+            };
+            seatRows.computeIfAbsent(state.rowNumbers[index], row -> new ArrayList<>())
+                    .add(new SeatMapSeat(state.seatIds[index], state.rowNumbers[index],
+                            state.seatNumbers[index], state.seatNames[index], state.columnNumbers[index],
+                            state.seatTypes[index], seatState));
+        }
+        return seatRows;
+    }
+
+    /**
+     * Drop the cached state of a screening whose seats were re-initialized or deleted
+     */
+    public void evict(Long screeningId) {
+        seatWriteBehind.discard(screeningId);
+        ScreeningSeatState state = screenings.get(screeningId);
+        if (state != null && removeState(state) && !state.pendingReleases.isEmpty()) {
+            log.debug("Discarding {} pending seat releases for evicted screening {}", state.pendingReleases.size(), screeningId);
+        }
+    }
+
+    /**
+     * Write pending changes of one screening to the database right away, and wait until its journaled changes
+     * are applied (by the applier, not on this thread, see SeatWriteBehind.awaitApplied).
+     * Must be called outside of a transaction: the writes need a connection of their own, and a caller holding one
+     * while it waits could exhaust the pool under load. Throws SeatEngineBusyException after the command timeout.
+     */
+    public void flush(Long screeningId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Seat state must be flushed before the transaction starts");
+        }
+        ScreeningSeatState state = screenings.get(screeningId);
+        if (state != null) {
+            CompletableFuture<Void> flushed = new CompletableFuture<>();
+            send(state, new Flush(flushed));
+            await(flushed);
+        }
+        awaitApplied(screeningId);
+    }
+
+    /**
+     * A journaled hold the database refused when it was applied: free its seats unless they were changed since
+     */
+    @EventListener
+    public void onHoldRejected(SeatHoldRejectedEvent event) {
+        ScreeningSeatState state = screenings.get(event.screeningId());
+        if (state != null) {
+            for (Long seatId : event.seatIds()) {
+                send(state, new RevertHold(seatId, event.holdId()));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${booking.seat-engine.flush-interval-ms:100}")
+    public void flushPendingWrites() {
+        for (ScreeningSeatState state : screenings.values()) {
+            if (!state.pendingReleases.isEmpty()) {
+                send(state, new Flush(null));
+            }
+        }
+    }
+
+    /**
+     * Release the holds that expired during the last tick: in memory per seat, by the screening's worker,
+     * then in the database with one bulk UPDATE
+     */
+    @Scheduled(fixedRate = HOLD_EXPIRY_TICK_MILLIS)
+    public void expireHolds() {
+        List<HoldExpiryWheel.Entry> due = expiryWheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+
+        for (HoldExpiryWheel.Entry entry : due) {
+            ScreeningSeatState state = screenings.get(entry.screeningId());
+            if (state != null) {
+                send(state, new ExpireHold(entry.seatId(), entry.expiryMillis()));
+            }
+        }
+
+        try {
+            Timer.Sample sample = bookingMetrics.start();
+            int released = seatReservationWriter.releaseExpiredHolds(LocalDateTime.now());
+            bookingMetrics.recordExpiredHolds(sample, released);
+            log.debug("Released {} expired seat holds", released);
+        } catch (Exception e) {
+            log.error("Error releasing expired seat holds: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${booking.seat-engine.eviction-interval-ms:60000}")
+    public void evictEndedScreenings() {
+        LocalDateTime now = LocalDateTime.now();
+        for (ScreeningSeatState state : screenings.values()) {
+            if (state.endTime.isBefore(now)) {
+                // Pending releases are still written by the worker after the state is gone from the map
+                send(state, new Flush(null));
+                removeState(state);
+            }
+        }
+    }
+
+    /**
+     * Queue a command for the screening and make sure its worker runs it
+     */
+    private void send(ScreeningSeatState state, SeatCommand command) {
+        state.mailbox.add(new Queued(command, System.nanoTime()));
+        schedule(state);
+    }
+
+    private void schedule(ScreeningSeatState state) {
+        if (!state.mailbox.isEmpty() && state.scheduled.compareAndSet(false, true)) {
+            try {
+                state.worker.execute(() -> run(state));
+            } catch (RejectedExecutionException e) {
+                // Shutting down: answer whatever is queued instead of leaving callers waiting
+                Queued queued;
+                while ((queued = state.mailbox.poll()) != null) {
+                    queued.command().cancel();
+                }
+                state.scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * One turn of a screening on its worker, the only thread that changes its seats: apply queued commands in order,
+     * then write the holds accepted in this turn, with the pending releases, in one transaction and answer them
+     */
+    private void run(ScreeningSeatState state) {
+        List<PendingHold> batch = new ArrayList<>();
+        try {
+            Queued queued;
+            int applied = 0;
+            while (applied++ < MAX_COMMANDS_PER_RUN && (queued = state.mailbox.poll()) != null) {
+                SeatCommand command = queued.command();
+                // What a seat lock wait used to be: time behind the screening's other commands and other screenings
+                bookingMetrics.getCommandWait().record(System.nanoTime() - queued.queuedNanos(), TimeUnit.NANOSECONDS);
+                try {
+                    apply(state, command, batch);
+                } catch (Exception e) {
+                    log.error("Error applying seat command {} for screening {}: {}", command, state.screeningId, e.getMessage());
+                    command.cancel();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(state, batch);
+            }
+        } finally {
+            state.scheduled.set(false);
+            // Commands that arrived after the last poll, or beyond this turn's share
+            schedule(state);
+        }
+    }
+
+    private void apply(ScreeningSeatState state, SeatCommand command, List<PendingHold> batch) {
+        switch (command) {
+            case HoldSeats hold -> {
+                if (hold.result().isDone()) {
+                    // The caller gave up waiting (command timeout)
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                int[] indexes = new int[hold.seatIds().length];
+                for (int i = 0; i < indexes.length; i++) {
+                    int index = state.indexOf(hold.seatIds()[i]);
+                    if (index < 0 || !state.isAvailable(index, now)) {
+                        bookingMetrics.recordHold(false, false);
+                        hold.result().complete(false);
+                        return;
+                    }
+                    indexes[i] = index;
+                }
+                state.write(() -> {
+                    for (int index : indexes) {
+                        state.states[index] = HELD;
+                        state.holdExpiry[index] = hold.expiryMillis();
+                        state.holdIds[index] = hold.holdId();
+                    }
+                });
+                batch.add(new PendingHold(hold, indexes));
+            }
+            case ReleaseSeat release -> {
+                int index = state.indexOf(release.seatId());
+                if (index >= 0 && batch.stream().anyMatch(pending -> pending.covers(index))) {
+                    // The hold has to reach the database before its release does
+                    writeBatch(state, batch);
+                }
+                if (index < 0 || state.states[index] == CONFIRMED
+                        || (release.holdId() != null
+                        && (state.states[index] != HELD || state.holdIds[index] != release.holdId()))) {
+                    release.result().complete(false);
+                    return;
+                }
+                state.write(() -> state.free(index));
+                state.pendingReleases.add(release.seatId());
+                seatEventHub.publish(state.screeningId, release.seatId(), SeatMapSeat.State.AVAILABLE);
+                release.result().complete(true);
+            }
+            case MarkSeat mark -> {
+                int index = state.indexOf(mark.seatId());
+                if (index >= 0) {
+                    state.write(() -> {
+                        state.states[index] = mark.newState();
+                        state.holdExpiry[index] = 0L;
+                        state.holdIds[index] = 0L;
+                    });
+                    seatEventHub.publish(state.screeningId, mark.seatId(),
+                            mark.newState() == CONFIRMED ? SeatMapSeat.State.SOLD : SeatMapSeat.State.AVAILABLE);
+                }
+                mark.applied().complete(null);
+            }
+            case ExpireHold expire -> {
+                int index = state.indexOf(expire.seatId());
+                // Skip seats that were released, confirmed or held again since this entry was scheduled
+                if (index >= 0 && state.states[index] == HELD && state.holdExpiry[index] == expire.expiryMillis()) {
+                    state.write(() -> state.free(index));
+                    seatEventHub.publish(state.screeningId, expire.seatId(), SeatMapSeat.State.AVAILABLE);
+                }
+            }
+            case RevertHold revert -> {
+                int index = state.indexOf(revert.seatId());
+                // Only in memory: the seat's row belongs to whoever the database gave it to
+                if (index >= 0 && state.states[index] == HELD && state.holdIds[index] == revert.holdId()) {
+                    state.write(() -> state.free(index));
+                    seatEventHub.publish(state.screeningId, revert.seatId(), SeatMapSeat.State.AVAILABLE);
+                }
+            }
+            case Flush flush -> {
+                writeBatch(state, batch);
+                if (flush.done() != null) {
+                    flush.done().complete(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record the pending releases and the accepted holds of this turn, then answer the holds: in the seat journal,
+     * or (journal disabled or failing) in one transaction. When the database rejects one of them (e.g. a row changed
+     * outside this engine), the releases and each hold are written on their own so only the rejected hold is reverted.
+     */
+    private void writeBatch(ScreeningSeatState state, List<PendingHold> batch) {
+        Set<Long> releasedSeatIds = new LinkedHashSet<>();
+        Long seatId;
+        while ((seatId = state.pendingReleases.poll()) != null) {
+            releasedSeatIds.add(seatId);
+        }
+        List<PendingHold> holds = List.copyOf(batch);
+        batch.clear();
+        if (holds.isEmpty() && releasedSeatIds.isEmpty()) {
+            return;
+        }
+
+        List<SeatReservationWriter.Hold> writes = holds.stream().map(PendingHold::toWrite).toList();
+        if (seatWriteBehind.isEnabled()) {
+            try {
+                seatWriteBehind.record(state.screeningId, releasedSeatIds, writes);
+                if (!holds.isEmpty()) {
+                    bookingMetrics.recordHoldBatch(holds.size());
+                }
+                holds.forEach(hold -> holdWritten(state, hold));
+                return;
+            } catch (Exception e) {
+                log.error("Error journaling seat changes of screening {}, writing them to the database: {}",
+                        state.screeningId, e.getMessage());
+            }
+        }
+
+        try {
+            (holds.isEmpty() ? bookingMetrics.getReleaseWrite() : bookingMetrics.getHoldWrite())
+                    .record(() -> seatReservationWriter.writeBatch(state.screeningId, releasedSeatIds, writes));
+            if (!holds.isEmpty()) {
+                bookingMetrics.recordHoldBatch(holds.size());
+            }
+            holds.forEach(hold -> holdWritten(state, hold));
+            return;
+        } catch (Exception e) {
+            if (holds.isEmpty()) {
+                log.error("Error writing seat releases for screening {}, reloading from database: {}",
+                        state.screeningId, e.getMessage());
+                removeState(state);
+                return;
+            }
+            log.debug("Seat hold batch of screening {} rejected, writing its holds one by one: {}",
+                    state.screeningId, e.getMessage());
+        }
+
+        try {
+            if (!releasedSeatIds.isEmpty()) {
+                bookingMetrics.getReleaseWrite().record(() -> seatReservationWriter.releaseSeats(state.screeningId, releasedSeatIds));
+            }
+        } catch (Exception e) {
+            log.error("Error writing seat releases for screening {}, reloading from database: {}",
+                    state.screeningId, e.getMessage());
+            removeState(state);
+            holds.forEach(hold -> holdRejected(state, hold));
+            return;
+        }
+        for (PendingHold hold : holds) {
+            try {
+                bookingMetrics.getHoldWrite().record(() ->
+                        seatReservationWriter.holdSeats(state.screeningId, hold.toWrite().seatIds(),
+                                hold.command().holdId(), hold.command().expiry()));
+                bookingMetrics.recordHoldBatch(1);
+                holdWritten(state, hold);
+            } catch (Exception e) {
+                log.warn("Database rejected seat hold, reverting: screeningId={}, seatIds={}: {}",
+                        state.screeningId, Arrays.toString(hold.command().seatIds()), e.getMessage());
+                holdRejected(state, hold);
+            }
+        }
+    }
+
+    private void holdWritten(ScreeningSeatState state, PendingHold hold) {
+        for (long seatId : hold.command().seatIds()) {
+            expiryWheel.schedule(state.screeningId, seatId, hold.command().expiryMillis());
+            seatEventHub.publish(state.screeningId, seatId, SeatMapSeat.State.HELD);
+        }
+        bookingMetrics.recordHold(true, false);
+        if (!hold.command().result().complete(true)) {
+            // The caller gave up waiting and was told the seats are not held: nobody has a token for this hold
+            for (long seatId : hold.command().seatIds()) {
+                send(state, new ReleaseSeat(seatId, hold.command().holdId(), new CompletableFuture<>()));
+            }
+        }
+    }
+
+    private void holdRejected(ScreeningSeatState state, PendingHold hold) {
+        state.write(() -> {
+            for (int index : hold.indexes()) {
+                if (state.states[index] == HELD && state.holdIds[index] == hold.command().holdId()) {
+                    state.free(index);
+                }
+            }
+        });
+        bookingMetrics.recordHold(false, true);
+        hold.command().result().complete(false);
+    }
+
+    private ScreeningSeatState getState(Long screeningId) {
+        ScreeningSeatState state = screenings.get(screeningId);
+        if (state != null) {
+            return state;
+        }
+
+        // Screening created after startup: load lazily, outside of the map's compute lock.
+        // Changes journaled before an earlier state of it was dropped have to be in the table first
+        awaitApplied(screeningId);
+        return screeningRepository.findById(screeningId)
+                .map(screening -> {
+                    ScreeningSeatState loaded = loadState(screening);
+                    ScreeningSeatState existing = screenings.putIfAbsent(screeningId, loaded);
+                    if (existing != null) {
+                        return existing;
+                    }
+                    bindMetrics(loaded);
+                    return loaded;
+                })
+                .orElse(null);
+    }
+
+    private ScreeningSeatState loadState(Screening screening) {
+        Long screeningId = screening.getId();
+        Executor worker = seatWorkers.forScreening(screeningId);
+        // Rows come back ordered by seat id, so indexOf can binary search
+        List<SeatStateView> rows = seatReservationRepository.findSeatStatesByScreeningId(screeningId);
+        ScreeningSeatState state;
+        if (screening.isSparseReservations()) {
+            // Every seat of the hall template (query cache), then the few rows of seats that were held or sold
+            List<Seat> seats = seatRepository.findByHallNumber(screening.getHallNumber()).stream()
+                    .sorted(Comparator.comparing(Seat::getId))
+                    .toList();
+            state = new ScreeningSeatState(screeningId, screening.getEndTime(), seats.size(), worker);
+            for (int i = 0; i < seats.size(); i++) {
+                Seat seat = seats.get(i);
+                setSeat(state, i, seat.getId(), seat.getRowNumber(), seat.getSeatNumber(), seat.getSeatName(),
+                        seat.getColumnNumber(), seat.getSeatType());
+            }
+            for (SeatStateView row : rows) {
+                int index = state.indexOf(row.getSeatId());
+                if (index >= 0) {
+                    setReservation(state, index, row);
+                }
+            }
+        } else {
+            state = new ScreeningSeatState(screeningId, screening.getEndTime(), rows.size(), worker);
+            for (int i = 0; i < rows.size(); i++) {
+                SeatStateView row = rows.get(i);
+                setSeat(state, i, row.getSeatId(), row.getRowNumber(), row.getSeatNumber(), row.getSeatName(),
+                        row.getColumnNumber(), row.getSeatType());
+                setReservation(state, i, row);
+            }
+        }
+        state.displayOrder = IntStream.range(0, state.seatIds.length).boxed()
+                .sorted(Comparator.<Integer>comparingInt(i -> state.rowNumbers[i]).thenComparingInt(i -> state.seatNumbers[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        return state;
+    }
+
+    private static void setSeat(ScreeningSeatState state, int index, long seatId, int rowNumber, int seatNumber,
+                                String seatName, Integer columnNumber, Seat.SeatType seatType) {
+        state.seatIds[index] = seatId;
+        state.rowNumbers[index] = rowNumber;
+        state.seatNumbers[index] = seatNumber;
+        state.seatNames[index] = seatName;
+        // Seats created before hall templates have no column: they sit side by side
+        state.columnNumbers[index] = columnNumber != null ? columnNumber : seatNumber;
+        state.seatTypes[index] = seatType != null ? seatType : Seat.SeatType.STANDARD;
+    }
+
+    private void setReservation(ScreeningSeatState state, int index, SeatStateView row) {
+        if (row.isConfirmed()) {
+            state.states[index] = CONFIRMED;
+        } else if (row.isReserved()) {
+            state.states[index] = HELD;
+            // Rows held before hold ids were kept match no token
+            state.holdIds[index] = row.getHoldId() != null ? row.getHoldId() : 0L;
+            if (row.getReservationExpiry() != null) {
+                state.holdExpiry[index] = toEpochMillis(row.getReservationExpiry());
+                expiryWheel.schedule(state.screeningId, state.seatIds[index], state.holdExpiry[index]);
+            } else {
+                state.holdExpiry[index] = Long.MAX_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Waits until applied, so the caller reads its own change back (seat map, counts).
+     * Must not be called inside a transaction: the worker may be writing to the same rows.
+     * After the command timeout it stops waiting; the change is still applied when the worker gets to it.
+     */
+    private void updateLoadedState(Long screeningId, Long seatId, byte newState) {
+        ScreeningSeatState state = screenings.get(screeningId);
+        if (state != null) {
+            CompletableFuture<Void> applied = new CompletableFuture<>();
+            send(state, new MarkSeat(seatId, newState, applied));
+            try {
+                await(applied);
+            } catch (SeatEngineBusyException e) {
+                log.warn("Seat {} of screening {} not updated in memory yet: {}", seatId, screeningId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Wait for a command's answer, at most the command timeout
+     */
+    private <T> T await(CompletableFuture<T> answer) {
+        try {
+            return answer.get(commandTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new SeatEngineBusyException("Seat worker did not answer within " + commandTimeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SeatEngineBusyException("Interrupted while waiting for the seat worker");
+        } catch (ExecutionException e) {
+            // Answers are only ever completed normally
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void awaitApplied(Long screeningId) {
+        if (!seatWriteBehind.awaitApplied(screeningId, commandTimeoutMillis)) {
+            throw new SeatEngineBusyException("Seat journal of screening " + screeningId
+                    + " not applied within " + commandTimeoutMillis + " ms");
+        }
+    }
+
+    private boolean removeState(ScreeningSeatState state) {
+        if (screenings.remove(state.screeningId, state)) {
+            bookingMetrics.unbindScreening(state.screeningId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Per-screening occupancy gauges, counted from memory when the metrics are read
+     */
+    private void bindMetrics(ScreeningSeatState state) {
+        bookingMetrics.bindScreening(state.screeningId, state,
+                s -> s.count(FREE), s -> s.count(HELD), s -> s.count(CONFIRMED));
+    }
+
+    /**
+     * Hold expiries are kept in whole seconds, the precision of the reservation_expiry column, so a hold reloaded
+     * from the database expires (and is found in the expiry wheel) at the same time as before
+     */
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.truncatedTo(ChronoUnit.SECONDS).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * A change to one screening's seats, applied by its worker
+     */
+    private sealed interface SeatCommand {
+        /**
+         * Answer the caller of a command that will not be applied
+         */
+        default void cancel() {
+        }
+    }
+
+    /**
+     * A command in a mailbox, with the System.nanoTime() it was sent at
+     */
+    private record Queued(SeatCommand command, long queuedNanos) {
+    }
+
+    private record HoldSeats(long[] seatIds, long holdId, long expiryMillis, LocalDateTime expiry,
+                             CompletableFuture<Boolean> result) implements SeatCommand {
+        @Override
+        public void cancel() {
+            result.complete(false);
+        }
+    }
+
+    /**
+     * holdId: only release that hold; null releases any hold
+     */
+    private record ReleaseSeat(long seatId, Long holdId, CompletableFuture<Boolean> result) implements SeatCommand {
+        @Override
+        public void cancel() {
+            result.complete(false);
+        }
+    }
+
+    private record MarkSeat(long seatId, byte newState, CompletableFuture<Void> applied) implements SeatCommand {
+        @Override
+        public void cancel() {
+            applied.complete(null);
+        }
+    }
+
+    private record ExpireHold(long seatId, long expiryMillis) implements SeatCommand {
+    }
+
+    /**
+     * A hold the database refused: freed in memory if the seat is still under it
+     */
+    private record RevertHold(long seatId, long holdId) implements SeatCommand {
+    }
+
+    /**
+     * done: completed once written, null when nobody waits for it
+     */
+    private record Flush(CompletableFuture<Void> done) implements SeatCommand {
+        @Override
+        public void cancel() {
+            if (done != null) {
+                done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * A hold applied in memory whose database write is part of the current batch
+     */
+    private record PendingHold(HoldSeats command, int[] indexes) {
+
+        boolean covers(int index) {
+            for (int held : indexes) {
+                if (held == index) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        SeatReservationWriter.Hold toWrite() {
+            return new SeatReservationWriter.Hold(Arrays.stream(command.seatIds()).boxed().toList(), command.holdId(), command.expiry());
+        }
+    }
+
+    /**
+     * Seat states of one screening, indexed by position in the sorted seat id array.
+     * Only the screening's worker writes states and holdExpiry; other threads read them optimistically
+     * through {@link #read} and retry if a write happened meanwhile.
+     */
+    private static final class ScreeningSeatState {
+        final long screeningId;
+        final LocalDateTime endTime;
+        final long[] seatIds;
+        final byte[] states;
+        final long[] holdExpiry;
+        // Id of the hold a HELD seat is under, 0 otherwise
+        final long[] holdIds;
+        // Seat layout, fixed once loaded
+        final int[] rowNumbers;
+        final int[] seatNumbers;
+        final String[] seatNames;
+        final int[] columnNumbers;
+        final Seat.SeatType[] seatTypes;
+        int[] displayOrder;
+        final Queue<Long> pendingReleases = new ConcurrentLinkedQueue<>();
+
+        final Executor worker;
+        final Queue<Queued> mailbox = new ConcurrentLinkedQueue<>();
+        // True while a turn of this screening is queued or running on the worker
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // Never contended by writers (there is one); lets readers see a consistent copy without blocking it
+        final StampedLock stamp = new StampedLock();
+
+        ScreeningSeatState(long screeningId, LocalDateTime endTime, int seatCount, Executor worker) {
+            this.screeningId = screeningId;
+            this.endTime = endTime;
+            this.seatIds = new long[seatCount];
+            this.states = new byte[seatCount];
+            this.holdExpiry = new long[seatCount];
+            this.holdIds = new long[seatCount];
+            this.rowNumbers = new int[seatCount];
+            this.seatNumbers = new int[seatCount];
+            this.seatNames = new String[seatCount];
+            this.columnNumbers = new int[seatCount];
+            this.seatTypes = new Seat.SeatType[seatCount];
+            this.worker = worker;
+        }
+
+        int indexOf(long seatId) {
+            return Arrays.binarySearch(seatIds, seatId);
+        }
+
+        /**
+         * Only called by the screening's worker, inside {@link #write}
+         */
+        void free(int index) {
+            states[index] = FREE;
+            holdExpiry[index] = 0L;
+            holdIds[index] = 0L;
+        }
+
+        boolean isAvailable(int index, long now) {
+            return states[index] == FREE || (states[index] == HELD && holdExpiry[index] <= now);
+        }
+
+        /**
+         * Only called by the screening's worker
+         */
+        void write(Runnable change) {
+            long writeStamp = stamp.writeLock();
+            try {
+                change.run();
+            } finally {
+                stamp.unlockWrite(writeStamp);
+            }
+        }
+
+        <T> T read(Supplier<T> reader) {
+            long readStamp = stamp.tryOptimisticRead();
+            T result = reader.get();
+            if (stamp.validate(readStamp)) {
+                return result;
+            }
+            readStamp = stamp.readLock();
+            try {
+                return reader.get();
+            } finally {
+                stamp.unlockRead(readStamp);
+            }
+        }
+
+        /**
+         * Number of seats in the given state, with expired holds counted as free
+         */
+        int count(byte state) {
+            long now = System.currentTimeMillis();
+            return read(() -> {
+                int count = 0;
+                for (int i = 0; i < states.length; i++) {
+                    byte current = states[i] == HELD && holdExpiry[i] <= now ? FREE : states[i];
+                    if (current == state) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.movieticketsystem.service;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed set of single-threaded executors that seat changes run on, selected by screening id.
+ * Every change to one screening runs on the same thread, one after the other (see SeatStateEngine),
+ * so busy screenings spread over the workers and each one is bounded by a single core, not by lock contention.
+ */
+public class SeatWorkers {
+
+    private final List<ExecutorService> workers;
+
+    public SeatWorkers(List<ExecutorService> workers) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one seat worker is needed");
+        }
+        this.workers = List.copyOf(workers);
+    }
+
+    public Executor forScreening(long screeningId) {
+        return workers.get((int) Math.floorMod(screeningId, (long) workers.size()));
+    }
+
+    public int size() {
+        return workers.size();
+    }
+
+    /**
+     * Let queued seat changes finish, called by Spring on shutdown (inferred destroy method)
+     */
+    public void shutdown() {
+        workers.forEach(ExecutorService::shutdown);
+        try {
+            for (ExecutorService worker : workers) {
+                if (!worker.awaitTermination(30, TimeUnit.SECONDS)) {
+                    worker.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(ExecutorService::shutdownNow);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
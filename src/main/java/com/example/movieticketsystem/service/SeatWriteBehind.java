@@ -0,0 +1,388 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.model.SeatJournalCheckpoint;
+import com.example.movieticketsystem.repository.SeatJournalCheckpointRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind of seat holds and releases. SeatStateEngine journals each batch of a screening's changes
+ * (SeatJournal, fsync'd) and answers the holds once it is on disk; the journal is applied to seat_reservations
+ * in the background, in sequence order, many batches per transaction. That transaction also stores the sequence
+ * it reaches (seat_journal_checkpoints), so on startup the journal is replayed from exactly there.
+ * A hold the database refuses when it is applied is reverted in memory through {@link SeatHoldRejectedEvent}.
+ * Requests that need a screening's changes in the table wait for the applier ({@link #awaitApplied}) instead of
+ * applying the journal themselves.
+ */
+@Service
+@Slf4j
+public class SeatWriteBehind {
+
+    private final boolean enabled;
+    private final int applyBatchSize;
+    private final int applyAttempts;
+    private final SeatJournal journal;
+    private final SeatReservationWriter seatReservationWriter;
+    private final SeatJournalCheckpointRepository seatJournalCheckpointRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Timer journalWrite;
+    private final Timer journalApply;
+
+    // Journaled and acknowledged, not applied yet, by sequence
+    private final NavigableMap<Long, SeatJournal.Entry> unapplied = new ConcurrentSkipListMap<>();
+    // Screenings evicted from the seat engine: their entries up to this sequence are not applied
+    private final Map<Long, Long> discardedUpTo = new ConcurrentHashMap<>();
+    // Last sequence journaled per screening, until it is applied
+    private final Map<Long, Long> journaledUpTo = new ConcurrentHashMap<>();
+    // Every entry up to this sequence is in the table (or skipped); waiters are woken on appliedLock
+    private volatile long appliedUpTo;
+    private final Object appliedLock = new Object();
+    // Runs an apply as soon as a request waits for one, instead of at the next scheduled run
+    private final ExecutorService applier;
+    private final AtomicBoolean applyRequested = new AtomicBoolean();
+    // Guarded by this
+    private boolean recovered;
+    private long nextToApply;
+    private int failedAttempts;
+
+    public SeatWriteBehind(@Value("${booking.seat-journal.enabled:true}") boolean enabled,
+                           @Value("${booking.seat-journal.dir:data/seat-journal}") String directory,
+                           @Value("${booking.seat-journal.segment-size-mb:64}") int segmentSizeMb,
+                           @Value("${booking.seat-journal.apply-batch-size:5000}") int applyBatchSize,
+                           @Value("${booking.seat-journal.apply-attempts:5}") int applyAttempts,
+                           SeatReservationWriter seatReservationWriter,
+                           SeatJournalCheckpointRepository seatJournalCheckpointRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry) throws IOException {
+        this.enabled = enabled;
+        this.applyBatchSize = applyBatchSize;
+        this.applyAttempts = applyAttempts;
+        this.seatReservationWriter = seatReservationWriter;
+        this.seatJournalCheckpointRepository = seatJournalCheckpointRepository;
+        this.eventPublisher = eventPublisher;
+        this.journal = enabled ? new SeatJournal(Path.of(directory), segmentSizeMb * 1024 * 1024) : null;
+        if (enabled) {
+            journal.takeRecovered().forEach(entry -> unapplied.put(entry.seq(), entry));
+        }
+        this.applier = enabled ? Executors.newSingleThreadExecutor(Thread.ofPlatform().name("seat-journal-apply").factory()) : null;
+
+        journalWrite = Timer.builder("booking.seat_journal.write")
+                .description("Appending a batch of seat changes to the journal, fsync included")
+                .register(meterRegistry);
+        journalApply = Timer.builder("booking.seat_journal.apply")
+                .description("Applying journaled seat changes to the database, per transaction")
+                .register(meterRegistry);
+        Gauge.builder("booking.seat_journal.unapplied", unapplied, Map::size)
+                .description("Journaled seat changes not applied to the database yet")
+                .register(meterRegistry);
+        log.info("Seat journal: {}", enabled ? Path.of(directory).toAbsolutePath() : "disabled, seat changes are written directly");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Journal one batch of a screening's seat changes, releases before holds.
+     * Once this returns they are on disk and will reach the database, also after a crash.
+     */
+    public void record(Long screeningId, Collection<Long> releasedSeatIds, List<SeatReservationWriter.Hold> holds) throws IOException {
+        List<SeatJournal.Entry> entries = new ArrayList<>();
+        for (Long seatId : releasedSeatIds) {
+            entries.add(SeatJournal.Entry.release(screeningId, seatId));
+        }
+        for (SeatReservationWriter.Hold hold : holds) {
+            long expiryMillis = hold.expiry().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            for (Long seatId : hold.seatIds()) {
+                entries.add(SeatJournal.Entry.hold(screeningId, seatId, hold.holdId(), expiryMillis, hold.seatIds().size()));
+            }
+        }
+
+        Timer.Sample sample = Timer.start();
+        List<SeatJournal.Entry> written = journal.append(entries);
+        sample.stop(journalWrite);
+        written.forEach(entry -> unapplied.put(entry.seq(), entry));
+        if (!written.isEmpty()) {
+            journaledUpTo.merge(screeningId, written.get(written.size() - 1).seq(), Math::max);
+        }
+    }
+
+    /**
+     * Wait until the changes journaled so far for the screening are in seat_reservations, at most the given time.
+     * The applier is woken up for it; the caller does not apply anything itself. False on timeout.
+     */
+    public boolean awaitApplied(Long screeningId, long timeoutMillis) {
+        if (!enabled) {
+            return true;
+        }
+        Long target = journaledUpTo.get(screeningId);
+        if (target == null || appliedUpTo >= target) {
+            return true;
+        }
+        requestApply();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (appliedLock) {
+            while (appliedUpTo < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(appliedLock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void requestApply() {
+        if (applyRequested.compareAndSet(false, true)) {
+            try {
+                applier.execute(() -> {
+                    applyRequested.set(false);
+                    applyPending();
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down: the waiter times out
+                applyRequested.set(false);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (applier != null) {
+            applier.shutdownNow();
+        }
+    }
+
+    /**
+     * Do not apply the journaled changes of a screening whose seats were re-initialized or deleted
+     */
+    public void discard(Long screeningId) {
+        if (enabled) {
+            discardedUpTo.put(screeningId, journal.nextSeq() - 1);
+        }
+    }
+
+    /**
+     * Apply the entries a previous run left in the journal, before seat state is loaded from the database.
+     * Entries the database cannot take are skipped (logged) so startup is not blocked by them.
+     */
+    public synchronized void recover() {
+        if (!enabled || recovered) {
+            return;
+        }
+        long appliedSeq = seatJournalCheckpointRepository.findById(journal.nodeId())
+                .map(SeatJournalCheckpoint::getAppliedSeq)
+                .orElse(0L);
+        unapplied.headMap(appliedSeq, true).clear();
+        nextToApply = unapplied.isEmpty() ? journal.nextSeq() : unapplied.firstKey();
+        advanceApplied(nextToApply - 1);
+        recovered = true;
+        if (!unapplied.isEmpty()) {
+            log.info("Replaying {} seat changes from the journal, after sequence {}", unapplied.size(), appliedSeq);
+            apply(1);
+        }
+    }
+
+    /**
+     * Apply the journaled changes, in sequence order, to the database; run early when a request waits for it
+     * (see {@link #awaitApplied})
+     */
+    @Scheduled(fixedDelayString = "${booking.seat-journal.apply-interval-ms:200}")
+    public void applyPending() {
+        if (enabled) {
+            apply(applyAttempts);
+        }
+    }
+
+    /**
+     * A chunk that fails is retried on the next calls; after the given number of attempts it is applied
+     * screening by screening and the screenings that still fail are skipped
+     */
+    private synchronized void apply(int attempts) {
+        if (!recovered) {
+            return;
+        }
+        List<SeatJournal.Entry> chunk;
+        while (!(chunk = nextChunk()).isEmpty()) {
+            long lastSeq = chunk.get(chunk.size() - 1).seq();
+            List<SeatReservationWriter.Changes> changes = toChanges(chunk);
+            try {
+                applyChanges(lastSeq, changes);
+            } catch (Exception e) {
+                if (++failedAttempts < attempts) {
+                    log.warn("Error applying {} journaled seat changes, retrying: {}", chunk.size(), e.getMessage());
+                    return;
+                }
+                log.error("Error applying {} journaled seat changes, applying them screening by screening: {}",
+                        chunk.size(), e.getMessage());
+                applyEach(lastSeq, chunk.get(0).seq() - 1, changes);
+            }
+            failedAttempts = 0;
+            unapplied.headMap(lastSeq, true).clear();
+            nextToApply = lastSeq + 1;
+            discardedUpTo.values().removeIf(seq -> seq <= lastSeq);
+            journaledUpTo.values().removeIf(seq -> seq <= lastSeq);
+            journal.deleteApplied(lastSeq);
+            advanceApplied(lastSeq);
+        }
+    }
+
+    private void advanceApplied(long seq) {
+        synchronized (appliedLock) {
+            appliedUpTo = seq;
+            appliedLock.notifyAll();
+        }
+    }
+
+    private void applyChanges(long lastSeq, List<SeatReservationWriter.Changes> changes) {
+        List<SeatReservationWriter.RejectedHold> rejected = journalApply.record(() ->
+                seatReservationWriter.applyJournal(journal.nodeId(), lastSeq, changes));
+        for (SeatReservationWriter.RejectedHold hold : rejected) {
+            log.warn("Database rejected journaled seat hold, reverting: screeningId={}, seatIds={}",
+                    hold.screeningId(), hold.hold().seatIds());
+            eventPublisher.publishEvent(new SeatHoldRejectedEvent(hold.screeningId(), hold.hold().seatIds(), hold.hold().holdId()));
+        }
+    }
+
+    /**
+     * Each screening's changes in their own transaction, keeping the checkpoint before the chunk until all are done
+     */
+    private void applyEach(long lastSeq, long previousSeq, List<SeatReservationWriter.Changes> changes) {
+        Map<Long, List<SeatReservationWriter.Changes>> byScreening = new HashMap<>();
+        changes.forEach(change -> byScreening.computeIfAbsent(change.screeningId(), id -> new ArrayList<>()).add(change));
+        byScreening.forEach((screeningId, screeningChanges) -> {
+            try {
+                applyChanges(previousSeq, screeningChanges);
+            } catch (Exception e) {
+                log.error("Skipping journaled seat changes of screening {}: {}", screeningId, e.getMessage());
+                screeningChanges.forEach(change -> change.holds().forEach(hold -> eventPublisher.publishEvent(
+                        new SeatHoldRejectedEvent(screeningId, hold.seatIds(), hold.holdId()))));
+            }
+        });
+        try {
+            applyChanges(lastSeq, List.of());
+        } catch (Exception e) {
+            // The next checkpoint covers these entries too; replaying them finds their holds already in place
+            log.error("Error storing the seat journal checkpoint {}: {}", lastSeq, e.getMessage());
+        }
+    }
+
+    /**
+     * The next entries in sequence, up to the apply batch size and never splitting a hold;
+     * stops at a gap, i.e. an entry still being journaled
+     */
+    private List<SeatJournal.Entry> nextChunk() {
+        List<SeatJournal.Entry> chunk = new ArrayList<>();
+        long seq = nextToApply;
+        while (chunk.size() < applyBatchSize) {
+            SeatJournal.Entry first = unapplied.get(seq);
+            if (first == null) {
+                break;
+            }
+            int size = first.type() == SeatJournal.HOLD ? first.holdSize() : 1;
+            List<SeatJournal.Entry> group = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                SeatJournal.Entry entry = unapplied.get(seq + i);
+                if (entry == null) {
+                    return chunk;
+                }
+                group.add(entry);
+            }
+            chunk.addAll(group);
+            seq += size;
+        }
+        return chunk;
+    }
+
+    /**
+     * Group a chunk into per-screening changes that can each be written releases first, then holds:
+     * a new group starts whenever a seat comes up again, so the order of changes to one seat is kept
+     */
+    private List<SeatReservationWriter.Changes> toChanges(List<SeatJournal.Entry> chunk) {
+        List<ChangesBuilder> builders = new ArrayList<>();
+        Map<Long, ChangesBuilder> open = new HashMap<>();
+        int i = 0;
+        while (i < chunk.size()) {
+            SeatJournal.Entry first = chunk.get(i);
+            int size = first.type() == SeatJournal.HOLD ? first.holdSize() : 1;
+            List<SeatJournal.Entry> group = chunk.subList(i, i + size);
+            i += size;
+            Long discarded = discardedUpTo.get(first.screeningId());
+            if (discarded != null && first.seq() <= discarded) {
+                continue;
+            }
+
+            ChangesBuilder builder = open.get(first.screeningId());
+            if (builder == null || group.stream().anyMatch(entry -> builder.seatIds.contains(entry.seatId()))) {
+                ChangesBuilder next = new ChangesBuilder(first.screeningId());
+                builders.add(next);
+                open.put(first.screeningId(), next);
+                next.add(group);
+            } else {
+                builder.add(group);
+            }
+        }
+        return builders.stream().map(ChangesBuilder::build).toList();
+    }
+
+    private static final class ChangesBuilder {
+        final Long screeningId;
+        final Set<Long> seatIds = new HashSet<>();
+        final Set<Long> released = new LinkedHashSet<>();
+        final List<SeatReservationWriter.Hold> holds = new ArrayList<>();
+
+        ChangesBuilder(Long screeningId) {
+            this.screeningId = screeningId;
+        }
+
+        void add(List<SeatJournal.Entry> group) {
+            group.forEach(entry -> seatIds.add(entry.seatId()));
+            SeatJournal.Entry first = group.get(0);
+            if (first.type() == SeatJournal.RELEASE) {
+                released.add(first.seatId());
+            } else {
+                LocalDateTime expiry = LocalDateTime.ofInstant(Instant.ofEpochMilli(first.expiryMillis()), ZoneId.systemDefault());
+                holds.add(new SeatReservationWriter.Hold(group.stream().map(SeatJournal.Entry::seatId).toList(), first.holdId(), expiry));
+            }
+        }
+
+        SeatReservationWriter.Changes build() {
+            return new SeatReservationWriter.Changes(screeningId, released, holds);
+        }
+    }
+}
@@ -1,24 +1,41 @@
 package com.example.movieticketsystem.service;
 
+import com.example.movieticketsystem.dto.TicketReportFilter;
+import com.example.movieticketsystem.dto.TicketReportPage;
+import com.example.movieticketsystem.dto.TicketReportRow;
 import com.example.movieticketsystem.model.Screening;
 import com.example.movieticketsystem.model.Ticket;
+import com.example.movieticketsystem.repository.TicketReportRepository;
 import com.example.movieticketsystem.repository.TicketRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class TicketService {
 
-    private final TicketRepository ticketRepository;
+    public static final int MAX_REPORT_PAGE_SIZE = 200;
 
-    public List<Ticket> findAllTickets() {
-        return ticketRepository.findAll();
-    }
+    private static final String CSV_HEADER =
+            "id,purchase_time,status,username,movie_id,movie,screening_id,screening_start,hall,seat,price";
+
+    private final TicketRepository ticketRepository;
+    private final TicketReportRepository ticketReportRepository;
+    private final ObjectMapper objectMapper;
 
     public Optional<Ticket> findTicketById(Long id) {
         return ticketRepository.findById(id);
@@ -28,6 +45,46 @@ public class TicketService {
         return ticketRepository.findByScreeningId(screening.getId());
     }
 
+    /**
+     * One page of the ticket report, newest first, continuing below the ticket id "before" (first page when null)
+     */
+    public TicketReportPage findReportPage(TicketReportFilter filter, Long before, int size) {
+        int pageSize = Math.clamp(size, 1, MAX_REPORT_PAGE_SIZE);
+        // Đọc thêm một dòng để biết còn trang sau hay không
+        List<TicketReportRow> rows = ticketReportRepository.findPage(filter, before, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new TicketReportPage(rows, null);
+        }
+        rows = rows.subList(0, pageSize);
+        return new TicketReportPage(rows, rows.get(pageSize - 1).getId());
+    }
+
+    /**
+     * Write every ticket matching the filter as CSV, or as NDJSON (one JSON object per line).
+     * Rows go from the database cursor straight to the output, so memory use does not depend on the number of tickets.
+     */
+    public void exportTickets(TicketReportFilter filter, boolean ndjson, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (!ndjson) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        try {
+            ticketReportRepository.streamAll(filter, row -> {
+                try {
+                    writer.write(ndjson ? toJson(row) : toCsv(row));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    // Client went away: abort the query instead of reading the remaining rows
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
     @Transactional
     public Ticket saveTicket(Ticket ticket) {
         return ticketRepository.save(ticket);
@@ -37,4 +94,38 @@ public class TicketService {
     public void deleteTicket(Long id) {
         ticketRepository.deleteById(id);
     }
-}
\ No newline at end of file
+
+    private String toJson(TicketReportRow row) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(row);
+    }
+
+    private static String toCsv(TicketReportRow row) {
+        return String.join(",",
+                String.valueOf(row.getId()),
+                Objects.toString(row.getPurchaseTime(), ""),
+                row.getStatus().name(),
+                csvField(row.getUsername()),
+                String.valueOf(row.getMovieId()),
+                csvField(row.getMovieTitle()),
+                String.valueOf(row.getScreeningId()),
+                Objects.toString(row.getScreeningStart(), ""),
+                String.valueOf(row.getHallNumber()),
+                csvField(row.getSeatName()),
+                row.getPrice().toPlainString());
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks, doubling inner quotes.
+    // User-entered text that a spreadsheet would run as a formula (=, +, -, @, tab, CR first) gets a leading '
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
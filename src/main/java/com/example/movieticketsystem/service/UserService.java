@@ -1,49 +1,85 @@
 package com.example.movieticketsystem.service;
 
-import com.example.movieticketsystem.model.Role;
+import com.example.movieticketsystem.model.AuthenticatedUser;
 import com.example.movieticketsystem.model.User;
 import com.example.movieticketsystem.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.time.Duration;
 import java.util.Optional;
 
 @Service
-@RequiredArgsConstructor
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
 
+    // Login data by username, so repeated logins (and remember-me) do not query the user and role again
+    private final Cache<String, LoginSnapshot> loginCache;
+
+    public UserService(UserRepository userRepository,
+                       PasswordEncoder passwordEncoder,
+                       @Value("${security.user-cache.max-users:10000}") long maxUsers,
+                       @Value("${security.user-cache.ttl-seconds:300}") long ttlSeconds,
+                       MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.loginCache = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, loginCache, "users");
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                getAuthorities(user.getRole())
-        );
+        LoginSnapshot snapshot = loginCache.get(username, name -> userRepository.findByUsername(name)
+                .map(user -> new LoginSnapshot(user.getId(), user.getUsername(), user.getPassword(), user.getRole().getName()))
+                .orElse(null));
+        if (snapshot == null) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+        // A new principal every time: Spring Security erases the password of the one it authenticates
+        return new AuthenticatedUser(snapshot.id(), snapshot.username(), snapshot.password(), snapshot.roleName());
     }
 
-    private Collection<? extends GrantedAuthority> getAuthorities(Role role) {
-        return Collections.singletonList(new SimpleGrantedAuthority(role.getName()));
+    /**
+     * Store the password re-hashed at sign-in, when the stored hash does not use the configured bcrypt cost
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        loginCache.invalidate(user.getUsername());
+        if (user instanceof AuthenticatedUser authenticated) {
+            return new AuthenticatedUser(authenticated.getId(), authenticated.getUsername(), newPassword, authenticated.getRoleName());
+        }
+        return loadUserByUsername(user.getUsername());
     }
 
     public Optional<User> findByUsername(String username) {
         return userRepository.findByUsername(username);
     }
 
+    /**
+     * The user with this id without loading it, e.g. to set as the owner of new tickets
+     */
+    public User getReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+
     public boolean existsByUsername(String username) {
         return userRepository.existsByUsername(username);
     }
@@ -55,10 +91,15 @@ public class UserService implements UserDetailsService {
     @Transactional
     public User registerNewUser(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        loginCache.invalidate(saved.getUsername());
+        return saved;
     }
 
     public Optional<User> findById(Long id) {
         return userRepository.findById(id);
     }
+
+    private record LoginSnapshot(Long id, String username, String password, String roleName) {
+    }
 }
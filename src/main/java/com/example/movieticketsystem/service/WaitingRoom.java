@@ -0,0 +1,247 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.QueueStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Waiting room per screening for on-sale rushes. Customers get a queue number on their first visit to the seat page
+ * and are admitted in that order, at a rate matched to the measured booking capacity, shared between the screenings
+ * that currently have a queue. Admission is valid for booking.waiting-room.pass-minutes; a reservation without it is
+ * turned away before it reaches the booking executor or the database.
+ * While nobody is waiting, up to one second of capacity is admitted at once, so quiet screenings never queue.
+ * The queue is kept in memory on each node.
+ */
+@Service
+@Slf4j
+public class WaitingRoom {
+
+    // Weight of the latest measurement in the average booking time
+    private static final double SMOOTHING = 0.1;
+
+    private final boolean enabled;
+    private final double fixedRate;
+    private final double initialRate;
+    private final double targetUtilization;
+    private final int bookingPermits;
+    private final long passNanos;
+    private final long abandonNanos;
+    private final LongSupplier nanoClock;
+
+    // Every read and change of a room goes through rooms.compute, so a room is only touched under its bin lock
+    private final Map<Long, Room> rooms = new ConcurrentHashMap<>();
+    // Average time a reservation holds a booking permit, as double bits; 0 until measured
+    private final AtomicLong averageBookingNanos = new AtomicLong(Double.doubleToLongBits(0));
+    private final Counter turnedAway;
+
+    @Autowired
+    public WaitingRoom(@Value("${booking.waiting-room.enabled:true}") boolean enabled,
+                       @Value("${booking.waiting-room.admit-per-second:0}") double fixedRate,
+                       @Value("${booking.waiting-room.initial-admit-per-second:20}") double initialRate,
+                       @Value("${booking.waiting-room.target-utilization:0.5}") double targetUtilization,
+                       @Value("${booking.concurrency-limit:${spring.datasource.hikari.maximum-pool-size:10}}") int bookingPermits,
+                       @Value("${booking.waiting-room.pass-minutes:10}") long passMinutes,
+                       @Value("${booking.waiting-room.abandon-seconds:60}") long abandonSeconds,
+                       MeterRegistry meterRegistry) {
+        this(enabled, fixedRate, initialRate, targetUtilization, bookingPermits, passMinutes, abandonSeconds,
+                meterRegistry, System::nanoTime);
+    }
+
+    /**
+     * With the clock given, so the admission rate and the timeouts can be followed without waiting
+     */
+    WaitingRoom(boolean enabled, double fixedRate, double initialRate, double targetUtilization, int bookingPermits,
+                long passMinutes, long abandonSeconds, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.fixedRate = fixedRate;
+        this.initialRate = initialRate;
+        this.targetUtilization = targetUtilization;
+        this.bookingPermits = bookingPermits;
+        this.passNanos = TimeUnit.MINUTES.toNanos(passMinutes);
+        this.abandonNanos = TimeUnit.SECONDS.toNanos(abandonSeconds);
+        this.nanoClock = nanoClock;
+
+        Gauge.builder("booking.waiting_room.waiting", rooms,
+                        r -> r.values().stream().mapToLong(room -> room.waiting).sum())
+                .description("Customers waiting to be admitted, over all screenings")
+                .register(meterRegistry);
+        Gauge.builder("booking.waiting_room.admit_rate", this, WaitingRoom::capacity)
+                .description("Customers admitted per second, shared by the screenings with a queue")
+                .register(meterRegistry);
+        turnedAway = Counter.builder("booking.waiting_room.turned_away")
+                .description("Reservations refused because the customer had not been admitted yet")
+                .register(meterRegistry);
+        log.info("Waiting room: {}", !enabled ? "disabled"
+                : fixedRate > 0 ? fixedRate + " customers/s" : "admission rate from measured booking time");
+    }
+
+    /**
+     * Take (or keep) the customer's place in the queue of the screening and return it
+     */
+    public QueueStatus enter(Long screeningId, Long userId) {
+        if (!enabled) {
+            return new QueueStatus(screeningId, true, 0, 0);
+        }
+        long now = nanoClock.getAsLong();
+        double rate = admitRate();
+        QueueStatus[] status = new QueueStatus[1];
+        rooms.compute(screeningId, (id, room) -> {
+            if (room == null) {
+                room = new Room(now, rate);
+            }
+            status[0] = room.enter(id, userId, now, rate);
+            return room;
+        });
+        return status[0];
+    }
+
+    /**
+     * Whether the customer may reserve seats now. Takes a place in the queue when the customer has none,
+     * so a reservation on a screening nobody is waiting for goes straight through.
+     */
+    public boolean admit(Long screeningId, Long userId) {
+        boolean admitted = enter(screeningId, userId).isAdmitted();
+        if (!admitted) {
+            turnedAway.increment();
+        }
+        return admitted;
+    }
+
+    /**
+     * Time a reservation held a booking permit, the measure of booking capacity
+     */
+    public void recordBookingTime(long nanos) {
+        averageBookingNanos.getAndUpdate(bits -> {
+            double average = Double.longBitsToDouble(bits);
+            return Double.doubleToLongBits(average == 0 ? nanos : average + SMOOTHING * (nanos - average));
+        });
+    }
+
+    /**
+     * Drop expired passes, customers who stopped waiting and empty rooms
+     */
+    @Scheduled(fixedDelayString = "${booking.waiting-room.sweep-interval-ms:10000}")
+    public void sweep() {
+        long now = nanoClock.getAsLong();
+        double rate = admitRate();
+        for (Long screeningId : rooms.keySet()) {
+            rooms.computeIfPresent(screeningId, (id, room) -> room.sweep(now, rate) ? null : room);
+        }
+    }
+
+    /**
+     * Customers admitted per second over all screenings: the configured rate, or as many as the booking permits
+     * can serve at the target utilization given the average booking time
+     */
+    double capacity() {
+        if (fixedRate > 0) {
+            return fixedRate;
+        }
+        double average = Double.longBitsToDouble(averageBookingNanos.get());
+        if (average == 0) {
+            return initialRate;
+        }
+        return bookingPermits * targetUtilization * TimeUnit.SECONDS.toNanos(1) / average;
+    }
+
+    /**
+     * Admission rate of one screening: the capacity shared by the screenings that have a queue
+     */
+    private double admitRate() {
+        long queued = rooms.values().stream().filter(room -> room.waiting > 0).count();
+        return capacity() / Math.max(1, queued);
+    }
+
+    private final class Room {
+        // Last queue number handed out
+        private long issued;
+        // Queue numbers up to this one are admitted; advances at the admission rate
+        private double admittedUpTo;
+        private long lastAdvance;
+        private final Map<Long, Place> places = new HashMap<>();
+        // Read by the gauge and admitRate without the lock
+        private volatile long waiting;
+
+        Room(long now, double rate) {
+            this.lastAdvance = now;
+            this.admittedUpTo = burst(rate);
+        }
+
+        QueueStatus enter(Long screeningId, Long userId, long now, double rate) {
+            advance(now, rate);
+            Place place = places.get(userId);
+            if (place == null || place.passExpired(now)) {
+                // Back of the queue, also after the pass ran out
+                place = new Place(++issued);
+                places.put(userId, place);
+            }
+            place.lastSeen = now;
+            if (place.admittedAt == 0 && place.number <= admittedUpTo) {
+                place.admittedAt = now;
+            }
+            updateWaiting();
+            if (place.admittedAt != 0) {
+                return new QueueStatus(screeningId, true, 0, 0);
+            }
+            long position = place.number - (long) admittedUpTo;
+            return new QueueStatus(screeningId, false, position, (long) Math.ceil(position / rate));
+        }
+
+        /**
+         * Remove stale places, true when the room is empty
+         */
+        boolean sweep(long now, double rate) {
+            advance(now, rate);
+            updateWaiting();
+            places.values().removeIf(place -> place.admittedAt != 0
+                    ? place.passExpired(now)
+                    : now - place.lastSeen > abandonNanos);
+            return places.isEmpty();
+        }
+
+        private void advance(long now, double rate) {
+            double elapsed = (now - lastAdvance) / (double) TimeUnit.SECONDS.toNanos(1);
+            lastAdvance = now;
+            // While nobody waits, at most one second of admissions builds up
+            admittedUpTo = Math.min(admittedUpTo + elapsed * rate, Math.max(admittedUpTo, issued + burst(rate)));
+        }
+
+        /**
+         * One second of admissions, and at least one customer so an empty room always lets the next one in
+         */
+        private double burst(double rate) {
+            return Math.max(1, rate);
+        }
+
+        private void updateWaiting() {
+            waiting = Math.max(0, issued - (long) admittedUpTo);
+        }
+
+        private final class Place {
+            private final long number;
+            private long admittedAt;
+            private long lastSeen;
+
+            Place(long number) {
+                this.number = number;
+            }
+
+            boolean passExpired(long now) {
+                return admittedAt != 0 && now - admittedAt > passNanos;
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+-- Initial schema: the tables as they were before versioned migrations.
+-- Databases created earlier (database.sql or Hibernate ddl-auto) are baselined at this version and skip it.
+
+-- Create roles table
+CREATE TABLE roles (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE
+);
+
+-- Create users table
+CREATE TABLE users (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    email VARCHAR(100) NOT NULL UNIQUE,
+    first_name VARCHAR(50),
+    last_name VARCHAR(50),
+    role_id BIGINT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (role_id) REFERENCES roles(id)
+);
+
+-- Create movies table
+CREATE TABLE movies (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    description TEXT,
+    duration INT NOT NULL,
+    genre VARCHAR(100),
+    release_date DATE,
+    image_url VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- Create screenings table
+CREATE TABLE screenings (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    movie_id BIGINT NOT NULL,
+    start_time DATETIME NOT NULL,
+    end_time DATETIME NOT NULL,
+    hall_number INT NOT NULL,
+    price DECIMAL(10,2) NOT NULL,
+    total_seats INT,
+    sparse_reservations BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (movie_id) REFERENCES movies(id)
+);
+
+-- Create halls table (seat template: one layout line per row, S/V/A seats and . gaps)
+CREATE TABLE halls (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    hall_number INT NOT NULL UNIQUE,
+    name VARCHAR(255),
+    layout TEXT NOT NULL,
+    seat_count INT NOT NULL
+);
+
+-- Create seats table (created once per hall; hall_id is NULL for seats made per screening before halls existed)
+CREATE TABLE seats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    hall_number INT NOT NULL,
+    row_num INT NOT NULL,
+    seat_number INT NOT NULL,
+    seat_name VARCHAR(10),
+    hall_id BIGINT,
+    column_num INT,
+    seat_type VARCHAR(20) DEFAULT 'STANDARD',
+    FOREIGN KEY (hall_id) REFERENCES halls(id)
+);
+
+-- Create seat_reservations table
+CREATE TABLE seat_reservations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    screening_id BIGINT NOT NULL,
+    seat_id BIGINT NOT NULL,
+    is_reserved BOOLEAN DEFAULT FALSE,
+    is_confirmed BOOLEAN DEFAULT FALSE,
+    reservation_expiry DATETIME,
+    lock_version INT DEFAULT NULL,
+    FOREIGN KEY (screening_id) REFERENCES screenings(id),
+    FOREIGN KEY (seat_id) REFERENCES seats(id)
+);
+
+-- Create tickets table
+CREATE TABLE tickets (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    screening_id BIGINT NOT NULL,
+    seat_id BIGINT NOT NULL,
+    purchase_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    status enum('ACTIVE','CANCELED','USED') NOT NULL,
+    version BIGINT DEFAULT NULL,
+    FOREIGN KEY (user_id) REFERENCES users(id),
+    FOREIGN KEY (screening_id) REFERENCES screenings(id),
+    FOREIGN KEY (seat_id) REFERENCES seats(id)
+);
+
+-- Ticket id generator (ids handed out in blocks of 50 so ticket inserts can be batched)
+CREATE TABLE tickets_seq (
+    next_val BIGINT
+);
+INSERT INTO tickets_seq VALUES (1);
+
+-- Screening, seat and seat reservation id generators (blocks of 50/500/500 so bulk scheduling can batch its inserts)
+CREATE TABLE screenings_seq (
+    next_val BIGINT
+);
+INSERT INTO screenings_seq VALUES (1);
+
+CREATE TABLE seats_seq (
+    next_val BIGINT
+);
+INSERT INTO seats_seq VALUES (1);
+
+CREATE TABLE seat_reservations_seq (
+    next_val BIGINT
+);
+INSERT INTO seat_reservations_seq VALUES (1);
+
+-- Sales analytics rollups, maintained incrementally as tickets are sold and canceled
+CREATE TABLE screening_sales (
+    screening_id BIGINT PRIMARY KEY,
+    tickets_sold BIGINT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL
+);
+
+CREATE TABLE movie_daily_sales (
+    movie_id BIGINT NOT NULL,
+    sales_date DATE NOT NULL,
+    tickets_sold BIGINT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL,
+    PRIMARY KEY (movie_id, sales_date)
+);
+
+CREATE TABLE hall_daily_sales (
+    hall_number INT NOT NULL,
+    sales_date DATE NOT NULL,
+    tickets_sold BIGINT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL,
+    PRIMARY KEY (hall_number, sales_date)
+);
+
+-- Insert default roles
+INSERT INTO roles (name) VALUES ('ROLE_ADMIN');
+INSERT INTO roles (name) VALUES ('ROLE_CUSTOMER');
+
+-- Insert default admin user (password: admin)
+INSERT INTO users (username, email, password, role_id) 
+VALUES ('admin', 'admin@example.com', '$2a$12$Ab.jMaB.exv4hlf1ayaJUevL33oWAFR0OOt52Xt27gBAGS/g7t3Hm',
+        (SELECT id FROM roles WHERE name = 'ROLE_ADMIN'));
@@ -0,0 +1,13 @@
+-- Indexes for the hot booking lookups (checked by BookingQueryPlanTest)
+
+-- One reservation row per seat and screening; also serves lookups by screening, and by screening and seat
+ALTER TABLE seat_reservations ADD CONSTRAINT uk_seat_reservations_screening_seat UNIQUE (screening_id, seat_id);
+
+-- Expired hold sweep: unconfirmed rows whose hold ran out
+CREATE INDEX idx_seat_reservations_expiry ON seat_reservations (is_confirmed, reservation_expiry);
+
+-- A customer's tickets by status, newest first
+CREATE INDEX idx_tickets_user_status_time ON tickets (user_id, status, purchase_time);
+
+-- "Does this screening have tickets that are not canceled" before editing or deleting it
+CREATE INDEX idx_tickets_screening_status ON tickets (screening_id, status);
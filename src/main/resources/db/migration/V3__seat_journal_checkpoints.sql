@@ -0,0 +1,6 @@
+-- Sequence up to which each node's seat journal has been applied to seat_reservations (SeatWriteBehind).
+-- Written in the same transaction as the seat changes, so a replay after a crash starts right after it
+CREATE TABLE seat_journal_checkpoints (
+    node VARCHAR(64) PRIMARY KEY,
+    applied_seq BIGINT NOT NULL
+);
@@ -0,0 +1,15 @@
+-- Price paid for each ticket, so a cancellation takes back what was paid even if the screening's price changed since
+ALTER TABLE tickets ADD COLUMN price DECIMAL(10,2);
+UPDATE tickets t SET price = (SELECT s.price FROM screenings s WHERE s.id = t.screening_id);
+
+-- Sales and cancellations not yet added to the rollups (SalesRollupService). Inserted in the ticket's own transaction,
+-- so none is lost in a crash; added to the rollup rows and deleted together in one transaction
+CREATE TABLE sales_rollup_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    screening_id BIGINT NOT NULL,
+    movie_id BIGINT NOT NULL,
+    hall_number INT NOT NULL,
+    sales_date DATE NOT NULL,
+    tickets INT NOT NULL,
+    revenue DECIMAL(14,2) NOT NULL
+);
@@ -0,0 +1,3 @@
+-- Id of the hold a seat is under, also carried in the buyer's hold token: confirming and releasing a hold is fenced
+-- on it, so a token cannot touch a later hold of the same seat, even one that expires in the same second
+ALTER TABLE seat_reservations ADD COLUMN hold_id BIGINT;
@@ -0,0 +1,370 @@
+package com.example.movieticketsystem.load;
+
+import com.example.movieticketsystem.model.Movie;
+import com.example.movieticketsystem.model.Role;
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.Seat;
+import com.example.movieticketsystem.model.User;
+import com.example.movieticketsystem.repository.MovieRepository;
+import com.example.movieticketsystem.repository.RoleRepository;
+import com.example.movieticketsystem.repository.UserRepository;
+import com.example.movieticketsystem.service.BookingMetrics;
+import com.example.movieticketsystem.service.ScreeningService;
+import com.example.movieticketsystem.service.SeatService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Simulates an on-sale rush: many customers log in, then all hit /booking/reserve and /booking/complete
+ * for the same screening at once, partly fighting over the same "hot" seats.
+ * Runs in-process against an embedded H2 database. Size the run with system properties, e.g.
+ * {@code mvn test -Dtest=OnSaleRushLoadTest -Dload.users=2000 -Dload.overlap=0.8 -Dload.think-millis=50}
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        // Schema generated from the entities, with H2's own SQL: the run measures the application, not MySQL mode
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // Đăng nhập chỉ là bước chuẩn bị: bcrypt rẻ và hàng đợi đủ cho cả loạt đăng nhập cùng lúc
+        "security.password.bcrypt-strength=4",
+        "security.login.queue-capacity=10000"
+})
+@ActiveProfiles("test")
+class OnSaleRushLoadTest {
+
+    private static final String PASSWORD = "load-test";
+
+    // Số khách hàng mô phỏng
+    private static final int USERS = Integer.getInteger("load.users", 200);
+    // Số ghế mỗi khách đặt
+    private static final int SEATS_PER_USER = Integer.getInteger("load.seats-per-user", 2);
+    // Tỉ lệ khách tranh nhau nhóm ghế "hot" (0..1), số còn lại đặt ghế riêng không trùng ai
+    private static final double OVERLAP = Double.parseDouble(System.getProperty("load.overlap", "0.5"));
+    private static final int HOT_SEATS = Integer.getInteger("load.hot-seats", 20);
+    // Thời gian "suy nghĩ" ngẫu nhiên tối đa giữa các bước
+    private static final int THINK_MILLIS = Integer.getInteger("load.think-millis", 20);
+
+    // Nhật ký ghế riêng cho mỗi lần chạy: cơ sở dữ liệu H2 mới không chứa các thay đổi của lần chạy trước
+    @TempDir
+    static Path seatJournalDir;
+
+    @DynamicPropertySource
+    static void seatJournal(DynamicPropertyRegistry registry) {
+        registry.add("booking.seat-journal.dir", () -> seatJournalDir.toString());
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MovieRepository movieRepository;
+    @Autowired
+    private ScreeningService screeningService;
+    @Autowired
+    private SeatService seatService;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private HikariDataSource dataSource;
+    @Autowired
+    private BookingMetrics bookingMetrics;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentLinkedQueue<Long> queueWaits = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Long> reserveLatencies = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> completeLatencies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger uncontended = new AtomicInteger();
+    private final AtomicInteger maxConnectionWaiters = new AtomicInteger();
+
+    @Test
+    void noSeatIsSoldTwiceDuringOnSaleRush() throws Exception {
+        Screening screening = createScreening(HOT_SEATS + USERS * SEATS_PER_USER);
+        List<Long> seatIds = seatService.findSeatsByHall(screening.getHallNumber()).stream()
+                .map(Seat::getId)
+                .sorted()
+                .toList();
+        List<String> usernames = createCustomers();
+
+        List<HttpClient> clients = new ArrayList<>(USERS);
+        try (ExecutorService customers = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Đăng nhập trước, không tính vào phép đo
+            List<Future<HttpClient>> logins = new ArrayList<>(USERS);
+            for (String username : usernames) {
+                logins.add(customers.submit(() -> login(username)));
+            }
+            for (Future<HttpClient> login : logins) {
+                clients.add(login.get());
+            }
+
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> maxConnectionWaiters.accumulateAndGet(
+                    dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection(), Math::max), 0, 10, TimeUnit.MILLISECONDS);
+
+            CountDownLatch onSale = new CountDownLatch(1);
+            List<Future<?>> runs = new ArrayList<>(USERS);
+            for (int i = 0; i < USERS; i++) {
+                HttpClient client = clients.get(i);
+                List<Long> wanted = pickSeats(seatIds, i);
+                runs.add(customers.submit(() -> {
+                    onSale.await();
+                    book(client, screening.getId(), wanted);
+                    return null;
+                }));
+            }
+
+            long start = System.nanoTime();
+            onSale.countDown();
+            for (Future<?> run : runs) {
+                run.get(5, TimeUnit.MINUTES);
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            sampler.shutdownNow();
+
+            report(elapsedMillis);
+        } finally {
+            clients.forEach(HttpClient::close);
+        }
+
+        // Không ghế nào có hai vé ACTIVE
+        List<Map<String, Object>> doubleBooked = jdbcTemplate.queryForList(
+                "select seat_id, count(*) as tickets from tickets where screening_id = ? and status = 'ACTIVE' " +
+                        "group by seat_id having count(*) > 1", screening.getId());
+        assertThat(doubleBooked).as("seats with more than one ACTIVE ticket").isEmpty();
+
+        Integer activeTickets = jdbcTemplate.queryForObject(
+                "select count(*) from tickets where screening_id = ? and status = 'ACTIVE'", Integer.class, screening.getId());
+        Integer confirmedSeats = jdbcTemplate.queryForObject(
+                "select count(*) from seat_reservations where screening_id = ? and is_confirmed = true", Integer.class, screening.getId());
+        assertThat(activeTickets).isEqualTo(completed.get() * SEATS_PER_USER);
+        assertThat(confirmedSeats).isEqualTo(activeTickets);
+        assertThat(errors.get()).as("requests that failed or timed out").isZero();
+        // Khách không tranh ghế hot luôn phải đặt được
+        assertThat(completed.get()).isGreaterThanOrEqualTo(uncontended.get());
+    }
+
+    private void book(HttpClient client, Long screeningId, List<Long> seatIds) throws Exception {
+        waitForTurn(client, screeningId);
+        think();
+        String seatParam = seatIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        long start = System.nanoTime();
+        HttpResponse<Void> reserve = post(client, "/booking/reserve", Map.of(
+                "screeningId", String.valueOf(screeningId),
+                "seatIds", seatParam));
+        reserveLatencies.add(System.nanoTime() - start);
+
+        String location = reserve.headers().firstValue("Location").orElse("");
+        if (location.endsWith("/booking/screening/" + screeningId)) {
+            rejected.incrementAndGet();
+            return;
+        }
+        int hold = location.indexOf("/booking/confirm?hold=");
+        if (hold < 0) {
+            errors.incrementAndGet();
+            return;
+        }
+        reserved.incrementAndGet();
+        // The held seats come back as a signed hold token, which the confirmation form posts to /booking/complete
+        String holdToken = URLDecoder.decode(location.substring(hold + "/booking/confirm?hold=".length()), StandardCharsets.UTF_8);
+
+        think();
+        start = System.nanoTime();
+        HttpResponse<Void> complete = post(client, "/booking/complete", Map.of("hold", holdToken));
+        completeLatencies.add(System.nanoTime() - start);
+
+        if (complete.headers().firstValue("Location").orElse("").endsWith("/customer/tickets")) {
+            completed.incrementAndGet();
+        } else {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Vào hàng đợi của suất chiếu như trang chờ: hỏi lại vị trí cho đến khi được vào chọn ghế
+     */
+    private void waitForTurn(HttpClient client, Long screeningId) throws Exception {
+        long start = System.nanoTime();
+        boolean waited = false;
+        while (true) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/booking/screening/" + screeningId + "/queue"))
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+            JsonNode status = objectMapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+            if (status.path("admitted").asBoolean()) {
+                break;
+            }
+            waited = true;
+            Thread.sleep(200);
+        }
+        if (waited) {
+            queued.incrementAndGet();
+            queueWaits.add(System.nanoTime() - start);
+        }
+    }
+
+    private HttpClient login(String username) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        HttpResponse<Void> response = post(client, "/login", Map.of("username", username, "password", PASSWORD));
+        assertThat(response.headers().firstValue("Location").orElse("")).as("login of " + username).doesNotContain("error");
+        return client;
+    }
+
+    private HttpResponse<Void> post(HttpClient client, String path, Map<String, String> form) throws Exception {
+        String body = form.entrySet().stream()
+                .map(e -> e.getKey() + "=" + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    /**
+     * Khách thứ i chọn ghế liền nhau trong nhóm ghế hot (theo tỉ lệ overlap) hoặc nhóm ghế riêng của mình
+     */
+    private List<Long> pickSeats(List<Long> seatIds, int customer) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int start;
+        if (random.nextDouble() < OVERLAP) {
+            start = random.nextInt(HOT_SEATS - SEATS_PER_USER + 1);
+        } else {
+            start = HOT_SEATS + customer * SEATS_PER_USER;
+            uncontended.incrementAndGet();
+        }
+        return seatIds.subList(start, start + SEATS_PER_USER);
+    }
+
+    private void think() throws InterruptedException {
+        if (THINK_MILLIS > 0) {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(THINK_MILLIS + 1));
+        }
+    }
+
+    private void report(long elapsedMillis) {
+        Timer commandWait = bookingMetrics.getCommandWait();
+        System.out.printf("""
+                        On-sale rush: %d users, %d seats each, overlap %.2f, %d hot seats, think time <= %d ms
+                          elapsed            %d ms
+                          waiting room       %d queued, wait p50/max %.1f / %.1f ms
+                          reserved           %d (rejected %d, errors %d) -> success rate %.1f%%
+                          completed          %d
+                          reserve  p50/p99   %.1f / %.1f ms
+                          complete p50/p99   %.1f / %.1f ms
+                          connection waiters max %d
+                          seat command wait  mean/max %.2f / %.1f ms over %d commands
+                        """,
+                USERS, SEATS_PER_USER, OVERLAP, HOT_SEATS, THINK_MILLIS,
+                elapsedMillis,
+                queued.get(), percentile(queueWaits, 0.50), percentile(queueWaits, 1.0),
+                reserved.get(), rejected.get(), errors.get(), 100.0 * reserved.get() / USERS,
+                completed.get(),
+                percentile(reserveLatencies, 0.50), percentile(reserveLatencies, 0.99),
+                percentile(completeLatencies, 0.50), percentile(completeLatencies, 0.99),
+                maxConnectionWaiters.get(),
+                commandWait.mean(TimeUnit.MILLISECONDS), commandWait.max(TimeUnit.MILLISECONDS), commandWait.count());
+    }
+
+    private static double percentile(ConcurrentLinkedQueue<Long> latencies, double percentile) {
+        List<Long> sorted = latencies.stream().sorted().toList();
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+    }
+
+    private Screening createScreening(int totalSeats) {
+        Movie movie = new Movie();
+        movie.setTitle("On-sale rush");
+        movie.setDuration(120);
+        movie = movieRepository.save(movie);
+
+        Screening screening = new Screening();
+        screening.setMovie(movie);
+        screening.setStartTime(LocalDateTime.now().plusDays(1));
+        screening.setEndTime(screening.getStartTime().plusMinutes(movie.getDuration()));
+        screening.setHallNumber(1);
+        screening.setPrice(BigDecimal.TEN);
+        screening.setTotalSeats(totalSeats);
+        screening = screeningService.saveScreening(screening);
+        seatService.initializeSeatReservations(screening);
+        return screening;
+    }
+
+    private List<String> createCustomers() {
+        Role role = roleRepository.findByName("ROLE_CUSTOMER")
+                .orElseGet(() -> roleRepository.save(new Role(null, "ROLE_CUSTOMER")));
+        // Cùng một mật khẩu cho mọi khách, chỉ mã hóa một lần
+        String encodedPassword = passwordEncoder.encode(PASSWORD);
+
+        List<User> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUsername("rush" + i);
+            user.setPassword(encodedPassword);
+            user.setEmail("rush" + i + "@example.com");
+            user.setRole(role);
+            users.add(user);
+        }
+        return userRepository.saveAll(users).stream().map(User::getUsername).toList();
+    }
+}
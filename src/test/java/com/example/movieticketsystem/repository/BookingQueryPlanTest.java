@@ -0,0 +1,198 @@
+package com.example.movieticketsystem.repository;
+
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.model.Seat;
+import com.example.movieticketsystem.model.Ticket;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that the hot booking queries are planned on the indexes from V2__booking_indexes.sql.
+ * The schema comes from the Flyway migrations (H2 in MySQL mode), and each query is the SQL Hibernate
+ * actually generates for the repository method, captured by a statement inspector and run through EXPLAIN.
+ * The tables hold a few thousand rows with statistics, so the planner chooses by cost as it would on real data.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.movieticketsystem.repository.BookingQueryPlanTest$CapturedSql")
+@ActiveProfiles("test")
+@Sql(scripts = "/sql/seed.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_CLASS)
+class BookingQueryPlanTest {
+
+    private static final String SEAT_RESERVATION_KEY = "UK_SEAT_RESERVATIONS_SCREENING_SEAT";
+    private static final String SEAT_RESERVATION_EXPIRY = "IDX_SEAT_RESERVATIONS_EXPIRY";
+
+    // is_reserved=0, is_confirmed=1, ...
+    private static final Pattern BOOLEAN_LITERAL = Pattern.compile("\\b(is_\\w+)=([01])\\b");
+
+    private static final int SCREENINGS = 40;
+    private static final int SEATS = 200;
+    private static final int USERS = 50;
+
+    @Autowired
+    private SeatReservationRepository seatReservationRepository;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void seedOnce() {
+        Integer screenings = jdbcTemplate.queryForObject("select count(*) from screenings", Integer.class);
+        if (screenings != null && screenings > 0) {
+            return;
+        }
+        // Movie 1, customer 100 and the first row of seats come from seed.sql
+        List<Object[]> users = new ArrayList<>();
+        for (long id = 101; id < 100 + USERS; id++) {
+            users.add(new Object[]{id, "user" + id, "user" + id + "@example.com"});
+        }
+        jdbcTemplate.batchUpdate("insert into users (id, username, email, password) values (?, ?, ?, 'x')", users);
+        List<Object[]> seats = new ArrayList<>();
+        for (long id = 11; id <= SEATS; id++) {
+            seats.add(new Object[]{id, (id - 1) / 10 + 1, (id - 1) % 10 + 1});
+        }
+        jdbcTemplate.batchUpdate("insert into seats (id, hall_number, row_num, seat_number) values (?, 1, ?, ?)", seats);
+
+        List<Object[]> screeningRows = new ArrayList<>();
+        List<Object[]> reservations = new ArrayList<>();
+        List<Object[]> tickets = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        for (long screening = 1; screening <= SCREENINGS; screening++) {
+            screeningRows.add(new Object[]{screening, start.plusHours(3 * screening), start.plusHours(3 * screening + 2)});
+            for (long seat = 1; seat <= SEATS; seat++) {
+                boolean sold = seat % 4 == 0;
+                boolean held = seat % 7 == 0 && !sold;
+                reservations.add(new Object[]{(screening - 1) * SEATS + seat, screening, seat, sold || held, sold,
+                        held ? start.minusMinutes(seat % 20) : null});
+                if (sold) {
+                    String status = seat % 12 == 0 ? "CANCELED" : "ACTIVE";
+                    tickets.add(new Object[]{(screening - 1) * SEATS + seat, 100 + seat % USERS, screening, seat,
+                            start.minusDays(seat % 30), status});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into screenings (id, movie_id, start_time, end_time, hall_number, price, total_seats) "
+                + "values (?, 1, ?, ?, 1, 10.00, " + SEATS + ")", screeningRows);
+        jdbcTemplate.batchUpdate("insert into seat_reservations (id, screening_id, seat_id, is_reserved, is_confirmed, "
+                + "reservation_expiry, lock_version) values (?, ?, ?, ?, ?, ?, 0)", reservations);
+        jdbcTemplate.batchUpdate("insert into tickets (id, user_id, screening_id, seat_id, purchase_time, status, version) "
+                + "values (?, ?, ?, ?, ?, ?, 0)", tickets);
+        jdbcTemplate.execute("analyze");
+    }
+
+    @Test
+    void reservationOfSeatUsesScreeningSeatKey() {
+        String sql = captureSql("seat_reservations", () -> transactionTemplate.executeWithoutResult(status ->
+                seatReservationRepository.findByScreeningAndSeat(
+                        entityManager.getReference(Screening.class, 1L), entityManager.getReference(Seat.class, 1L))));
+        assertUsesIndex(sql, SEAT_RESERVATION_KEY);
+    }
+
+    @Test
+    void seatHoldUsesScreeningSeatKey() {
+        String sql = captureSql("seat_reservations", () -> transactionTemplate.executeWithoutResult(status ->
+                seatReservationRepository.holdSeats(1L, List.of(1L, 2L), 1L, LocalDateTime.now(), LocalDateTime.now())));
+        assertUsesIndex(sql, SEAT_RESERVATION_KEY);
+    }
+
+    @Test
+    void expiredReservationLookupUsesExpiryIndex() {
+        String sql = captureSql("seat_reservations", () ->
+                seatReservationRepository.findByReservationExpiryLessThanAndConfirmedFalse(LocalDateTime.now()));
+        assertUsesIndex(sql, SEAT_RESERVATION_EXPIRY);
+    }
+
+    @Test
+    void expiredHoldSweepUsesExpiryIndex() {
+        String sql = captureSql("seat_reservations", () -> transactionTemplate.executeWithoutResult(status ->
+                seatReservationRepository.releaseExpiredHolds(LocalDateTime.now())));
+        assertUsesIndex(sql, SEAT_RESERVATION_EXPIRY);
+    }
+
+    @Test
+    void customerTicketsByStatusUseUserStatusTimeIndex() {
+        String sql = captureSql("tickets", () ->
+                ticketRepository.findByUserIdAndStatusOrderByPurchaseTimeDesc(1L, Ticket.TicketStatus.ACTIVE));
+        assertUsesIndex(sql, "IDX_TICKETS_USER_STATUS_TIME");
+    }
+
+    @Test
+    void activeTicketCheckUsesScreeningStatusIndex() {
+        String sql = captureSql("tickets", () ->
+                ticketRepository.existsByScreeningIdAndStatusNot(1L, Ticket.TicketStatus.CANCELED));
+        assertUsesIndex(sql, "IDX_TICKETS_SCREENING_STATUS");
+    }
+
+    /**
+     * The last statement on the given table run by the action
+     */
+    private static String captureSql(String table, Runnable action) {
+        CapturedSql.STATEMENTS.clear();
+        action.run();
+        String sql = null;
+        for (String statement : CapturedSql.STATEMENTS) {
+            if (statement.toLowerCase(Locale.ROOT).contains(table)) {
+                sql = statement;
+            }
+        }
+        if (sql == null) {
+            fail("No statement on " + table + " was run, captured: " + CapturedSql.STATEMENTS);
+        }
+        return sql;
+    }
+
+    private void assertUsesIndex(String sql, String index) {
+        // The MySQL dialect writes boolean literals as 0/1 (BOOLEAN is TINYINT(1) in MySQL). H2 keeps a real BOOLEAN
+        // column and will not use an index for BOOLEAN = 0, so the literals go back to FALSE/TRUE before planning.
+        String h2Sql = BOOLEAN_LITERAL.matcher(sql)
+                .replaceAll(m -> m.group(1) + "=" + ("1".equals(m.group(2)) ? "true" : "false"));
+        // H2 plans a prepared EXPLAIN without the parameter values
+        String plan = jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + h2Sql),
+                (ResultSet rs) -> rs.next() ? rs.getString(1) : "");
+        assertTrue(plan.toUpperCase(Locale.ROOT).contains("/* PUBLIC." + index),
+                () -> "Expected " + index + " to be used by\n" + sql + "\nbut the plan is\n" + plan);
+    }
+
+    /**
+     * Records every SQL statement Hibernate prepares, unchanged
+     */
+    public static class CapturedSql implements StatementInspector {
+
+        static final Queue<String> STATEMENTS = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
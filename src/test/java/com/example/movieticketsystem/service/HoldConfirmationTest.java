@@ -0,0 +1,191 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.BookingHold;
+import com.example.movieticketsystem.model.BookingResult;
+import com.example.movieticketsystem.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Confirming a hold with the hold id carried by its hold token, after the screening's seat state was dropped and
+ * reloaded from the database, when the seats went to another hold with the same expiry, and when the database no
+ * longer has the hold the seat state engine still shows.
+ * Runs on the test profile (H2 in MySQL mode, schema from the Flyway migrations) with the seats of seed.sql.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "/sql/seed.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_CLASS)
+class HoldConfirmationTest {
+
+    private static final long USER_ID = 100;
+    private static final int SEATS = 10;
+
+    // Each test gets a screening of its own
+    private static final AtomicLong nextScreeningId = new AtomicLong(1);
+
+    @TempDir
+    static Path seatJournalDir;
+
+    @DynamicPropertySource
+    static void seatJournal(DynamicPropertyRegistry registry) {
+        registry.add("booking.seat-journal.dir", () -> seatJournalDir.toString());
+    }
+
+    @Autowired
+    private ConcurrentBookingService concurrentBookingService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SeatStateEngine seatStateEngine;
+
+    @Autowired
+    private HoldTokenService holdTokenService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        // The customer from seed.sql
+        user = new User();
+        user.setId(USER_ID);
+    }
+
+    @Test
+    void holdReloadedFromDatabaseIsConfirmedWithItsToken() throws Exception {
+        long screeningId = createScreening();
+        List<Long> seatIds = List.of(1L, 2L);
+        // More precise than the token (millis) or the column (seconds) keeps it
+        LocalDateTime expiry = LocalDateTime.now().plusMinutes(BookingService.RESERVATION_TIMEOUT_MINUTES).withNano(123_456_789);
+        long holdId = BookingService.newHoldId();
+
+        assertThat(concurrentBookingService.reserveSeatsAsync(screeningId, seatIds, user, holdId, expiry).get(10, TimeUnit.SECONDS).isSuccess()).isTrue();
+        BookingHold hold = holdTokenService.verify(
+                holdTokenService.issue(new BookingHold(screeningId, seatIds, USER_ID, holdId, expiry)), USER_ID).orElseThrow();
+
+        // Seat state dropped and read back from the database, as after a restart
+        seatStateEngine.flush(screeningId);
+        seatStateEngine.evict(screeningId);
+
+        assertThat(seatStateEngine.isHeldBy(screeningId, seatIds, hold.getHoldId())).isTrue();
+        BookingResult result = concurrentBookingService.createTicketsAfterPayment(screeningId, seatIds, user, hold.getHoldId())
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(result.isSuccess()).as(result.getMessage()).isTrue();
+        assertThat(result.getTickets()).hasSize(2);
+        assertThat(confirmedSeats(screeningId)).isEqualTo(2);
+    }
+
+    @Test
+    void tokenOfAnEarlierHoldDoesNotConfirmTheSeats() throws Exception {
+        long screeningId = createScreening();
+        List<Long> seatIds = List.of(3L);
+        long holdId = BookingService.newHoldId();
+
+        assertThat(concurrentBookingService.reserveSeatsAsync(screeningId, seatIds, user, holdId, BookingService.newHoldExpiry())
+                .get(10, TimeUnit.SECONDS).isSuccess()).isTrue();
+        seatStateEngine.flush(screeningId);
+        seatStateEngine.evict(screeningId);
+
+        BookingResult result = concurrentBookingService.createTicketsAfterPayment(screeningId, seatIds, user, holdId + 1)
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(confirmedSeats(screeningId)).isZero();
+        // The seats stay under the hold that is still valid
+        assertThat(seatStateEngine.isHeldBy(screeningId, seatIds, holdId)).isTrue();
+    }
+
+    @Test
+    void seatsHeldAgainWithinTheSameSecondAreNotTouchedByTheFirstToken() throws Exception {
+        long screeningId = createScreening();
+        List<Long> seatIds = List.of(6L);
+        // Both holds run out at the same second, which told them apart before they had an id
+        LocalDateTime expiry = BookingService.newHoldExpiry();
+        long firstHold = BookingService.newHoldId();
+        long secondHold = firstHold + 1;
+
+        assertThat(concurrentBookingService.reserveSeatsAsync(screeningId, seatIds, user, firstHold, expiry).get(10, TimeUnit.SECONDS).isSuccess()).isTrue();
+        assertThat(bookingService.releaseHold(screeningId, 6L, firstHold)).isTrue();
+        assertThat(concurrentBookingService.reserveSeatsAsync(screeningId, seatIds, user, secondHold, expiry).get(10, TimeUnit.SECONDS).isSuccess()).isTrue();
+
+        // The first buyer going back from the confirmation page leaves the seat with the second hold
+        assertThat(bookingService.releaseHold(screeningId, 6L, firstHold)).isFalse();
+        BookingResult result = concurrentBookingService.createTicketsAfterPayment(screeningId, seatIds, user, firstHold)
+                .get(10, TimeUnit.SECONDS);
+        assertThat(result.isSuccess()).isFalse();
+
+        // Same checks with the seat state read back from the database
+        seatStateEngine.flush(screeningId);
+        seatStateEngine.evict(screeningId);
+        assertThat(seatStateEngine.isHeldBy(screeningId, seatIds, firstHold)).isFalse();
+        assertThat(seatStateEngine.isHeldBy(screeningId, seatIds, secondHold)).isTrue();
+        assertThat(concurrentBookingService.createTicketsAfterPayment(screeningId, seatIds, user, secondHold)
+                .get(10, TimeUnit.SECONDS).isSuccess()).isTrue();
+        assertThat(confirmedSeats(screeningId)).isEqualTo(1);
+    }
+
+    @Test
+    void holdChangedInDatabaseIsNotConfirmedFromMemory() throws Exception {
+        long screeningId = createScreening();
+        List<Long> seatIds = List.of(4L, 5L);
+        long holdId = BookingService.newHoldId();
+
+        assertThat(concurrentBookingService.reserveSeatsAsync(screeningId, seatIds, user, holdId, BookingService.newHoldExpiry())
+                .get(10, TimeUnit.SECONDS).isSuccess()).isTrue();
+        seatStateEngine.flush(screeningId);
+        // One seat is under another hold in the database while the seat state engine still has this one
+        jdbcTemplate.update("update seat_reservations set hold_id = ? where screening_id = ? and seat_id = 5",
+                holdId + 1, screeningId);
+        assertThat(seatStateEngine.isHeldBy(screeningId, seatIds, holdId)).isTrue();
+
+        BookingResult result = concurrentBookingService.createTicketsAfterPayment(screeningId, seatIds, user, holdId)
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(confirmedSeats(screeningId)).isZero();
+        Integer tickets = jdbcTemplate.queryForObject("select count(*) from tickets where screening_id = ?", Integer.class, screeningId);
+        assertThat(tickets).isZero();
+    }
+
+    private long createScreening() {
+        long screeningId = nextScreeningId.getAndIncrement();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        jdbcTemplate.update("insert into screenings (id, movie_id, start_time, end_time, hall_number, price, total_seats) "
+                + "values (?, 1, ?, ?, 1, 10.00, ?)", screeningId, start, start.plusHours(2), SEATS);
+        List<Object[]> reservations = new ArrayList<>();
+        for (long seat = 1; seat <= SEATS; seat++) {
+            reservations.add(new Object[]{(screeningId - 1) * SEATS + seat, screeningId, seat});
+        }
+        jdbcTemplate.batchUpdate("insert into seat_reservations (id, screening_id, seat_id, is_reserved, is_confirmed, "
+                + "reservation_expiry, lock_version) values (?, ?, ?, false, false, null, 0)", reservations);
+        return screeningId;
+    }
+
+    private int confirmedSeats(long screeningId) {
+        Integer confirmed = jdbcTemplate.queryForObject(
+                "select count(*) from seat_reservations where screening_id = ? and is_confirmed = true", Integer.class, screeningId);
+        return confirmed != null ? confirmed : 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.movieticketsystem.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HoldExpiryWheelTest {
+
+    private static final long TICK = 1000;
+    private static final int SLOTS = 8;
+
+    private HoldExpiryWheel wheel;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HoldExpiryWheel(SLOTS, TICK);
+        // Start of the current tick, so entries land in predictable slots
+        start = System.currentTimeMillis() / TICK * TICK;
+    }
+
+    @Test
+    void releasesEntryOnceItsTickHasElapsed() {
+        wheel.schedule(1, 10, start + 2 * TICK + 500);
+
+        assertThat(wheel.advance(start + 2 * TICK)).isEmpty();
+        assertThat(wheel.advance(start + 3 * TICK)).containsExactly(new HoldExpiryWheel.Entry(1, 10, start + 2 * TICK + 500));
+        // Released only once
+        assertThat(wheel.advance(start + 4 * TICK)).isEmpty();
+    }
+
+    @Test
+    void entryBeyondOneRevolutionIsRequeuedNotReleasedEarly() {
+        // Lands in the same slot as an entry due one revolution earlier
+        long laterExpiry = start + (2 + 2L * SLOTS) * TICK;
+        wheel.schedule(1, 20, laterExpiry);
+        wheel.schedule(1, 21, start + 2 * TICK);
+
+        List<HoldExpiryWheel.Entry> released = new ArrayList<>();
+        for (long now = start + TICK; now <= laterExpiry + TICK; now += TICK) {
+            List<HoldExpiryWheel.Entry> due = wheel.advance(now);
+            for (HoldExpiryWheel.Entry entry : due) {
+                assertThat(entry.expiryMillis()).as("released at %d", now).isLessThanOrEqualTo(now);
+            }
+            released.addAll(due);
+        }
+        assertThat(released).extracting(HoldExpiryWheel.Entry::seatId).containsExactly(21L, 20L);
+    }
+
+    @Test
+    void longPauseReleasesEverythingDueWithoutReleasingLaterEntries() {
+        wheel.schedule(1, 30, start + TICK);
+        wheel.schedule(1, 31, start + 5 * TICK);
+        wheel.schedule(1, 32, start + 40 * TICK);
+
+        // Several revolutions without a tick
+        List<HoldExpiryWheel.Entry> due = wheel.advance(start + 30 * TICK);
+
+        assertThat(due).extracting(HoldExpiryWheel.Entry::seatId).containsExactlyInAnyOrder(30L, 31L);
+        assertThat(wheel.advance(start + 41 * TICK)).extracting(HoldExpiryWheel.Entry::seatId).containsExactly(32L);
+    }
+
+    @Test
+    void entryAlreadyExpiredWhenScheduledIsReleasedOnTheNextTick() {
+        wheel.advance(start + 3 * TICK);
+        wheel.schedule(1, 40, start);
+
+        assertThat(wheel.advance(start + 5 * TICK)).extracting(HoldExpiryWheel.Entry::seatId).containsExactly(40L);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.BookingHold;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HoldTokenServiceTest {
+
+    private static final long USER_ID = 42;
+    private static final long HOLD_ID = 7_000_001;
+
+    private final HoldTokenService holdTokenService = new HoldTokenService("test-secret");
+
+    @Test
+    void validTokenGivesBackTheHold() {
+        LocalDateTime expiry = BookingService.newHoldExpiry();
+        String token = holdTokenService.issue(new BookingHold(7L, List.of(1L, 2L), USER_ID, HOLD_ID, expiry));
+
+        assertThat(holdTokenService.verify(token, USER_ID))
+                .contains(new BookingHold(7L, List.of(1L, 2L), USER_ID, HOLD_ID, expiry));
+    }
+
+    @Test
+    void tokenWithChangedSeatsIsRejected() {
+        String token = holdTokenService.issue(new BookingHold(7L, List.of(1L, 2L), USER_ID, HOLD_ID, BookingService.newHoldExpiry()));
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replace(":1,2:", ":1,3:").getBytes(StandardCharsets.UTF_8))
+                + token.substring(token.indexOf('.'));
+
+        assertThat(holdTokenService.verify(tampered, USER_ID)).isEmpty();
+    }
+
+    @Test
+    void tokenWithChangedSignatureIsRejected() {
+        String token = holdTokenService.issue(new BookingHold(7L, List.of(1L), USER_ID, HOLD_ID, BookingService.newHoldExpiry()));
+        int signature = token.indexOf('.') + 1;
+        char first = token.charAt(signature);
+        String tampered = token.substring(0, signature) + (first == 'A' ? 'B' : 'A') + token.substring(signature + 1);
+
+        assertThat(holdTokenService.verify(tampered, USER_ID)).isEmpty();
+    }
+
+    @Test
+    void tokenSignedWithAnotherSecretIsRejected() {
+        String token = new HoldTokenService("other-secret")
+                .issue(new BookingHold(7L, List.of(1L), USER_ID, HOLD_ID, BookingService.newHoldExpiry()));
+
+        assertThat(holdTokenService.verify(token, USER_ID)).isEmpty();
+    }
+
+    @Test
+    void tokenOfAnotherUserIsRejected() {
+        String token = holdTokenService.issue(new BookingHold(7L, List.of(1L), USER_ID, HOLD_ID, BookingService.newHoldExpiry()));
+
+        assertThat(holdTokenService.verify(token, USER_ID + 1)).isEmpty();
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String token = holdTokenService.issue(new BookingHold(7L, List.of(1L), USER_ID, HOLD_ID, LocalDateTime.now().minusSeconds(1)));
+
+        assertThat(holdTokenService.verify(token, USER_ID)).isEmpty();
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        assertThat(holdTokenService.verify(null, USER_ID)).isEmpty();
+        assertThat(holdTokenService.verify("", USER_ID)).isEmpty();
+        assertThat(holdTokenService.verify("no-signature", USER_ID)).isEmpty();
+        assertThat(holdTokenService.verify("%%%.%%%", USER_ID)).isEmpty();
+    }
+}
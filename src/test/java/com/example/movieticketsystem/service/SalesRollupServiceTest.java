@@ -0,0 +1,124 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.model.BookingResult;
+import com.example.movieticketsystem.model.Ticket;
+import com.example.movieticketsystem.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sales rollups fed by the events written with the tickets (test profile, with the customer and seats of seed.sql)
+ */
+@SpringBootTest(properties = {
+        // Flushed by the test only
+        "analytics.rollup.flush-interval-ms=3600000",
+        "analytics.rollup.flush-batch-size=2"
+})
+@ActiveProfiles("test")
+@Sql(scripts = "/sql/seed.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_CLASS)
+class SalesRollupServiceTest {
+
+    private static final long SCREENING_ID = 1;
+    private static final long USER_ID = 100;
+    private static final int SEATS = 10;
+
+    @TempDir
+    static Path seatJournalDir;
+
+    @DynamicPropertySource
+    static void seatJournal(DynamicPropertyRegistry registry) {
+        registry.add("booking.seat-journal.dir", () -> seatJournalDir.toString());
+    }
+
+    @Autowired
+    private ConcurrentBookingService concurrentBookingService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void seedOnce() {
+        user = new User();
+        user.setId(USER_ID);
+
+        Integer screenings = jdbcTemplate.queryForObject("select count(*) from screenings", Integer.class);
+        if (screenings != null && screenings > 0) {
+            return;
+        }
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        jdbcTemplate.update("insert into screenings (id, movie_id, start_time, end_time, hall_number, price, total_seats) "
+                + "values (?, 1, ?, ?, 1, 10.00, ?)", SCREENING_ID, start, start.plusHours(2), SEATS);
+        List<Object[]> reservations = new ArrayList<>();
+        for (long id = 1; id <= SEATS; id++) {
+            reservations.add(new Object[]{id, SCREENING_ID, id});
+        }
+        jdbcTemplate.batchUpdate("insert into seat_reservations (id, screening_id, seat_id, is_reserved, is_confirmed, "
+                + "reservation_expiry, lock_version) values (?, ?, ?, false, false, null, 0)", reservations);
+    }
+
+    @Test
+    void salesAreKeptUntilFlushedAndCancellationsTakeBackThePricePaid() throws Exception {
+        List<Ticket> tickets = buy(List.of(1L, 2L, 3L));
+
+        // Recorded with the tickets, not yet in the rollups
+        assertThat(jdbcTemplate.queryForObject("select count(*) from sales_rollup_events", Integer.class)).isEqualTo(1);
+        assertThat(tickets).extracting(Ticket::getPrice).containsOnly(new BigDecimal("10.00"));
+
+        // The price changes after the sale; the cancellation still takes back the 10.00 that was paid
+        jdbcTemplate.update("update screenings set price = 15.00 where id = ?", SCREENING_ID);
+        assertThat(bookingService.cancelTicket(tickets.get(0).getId(), USER_ID)).isTrue();
+        salesRollupService.flush();
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from sales_rollup_events", Integer.class)).isZero();
+        Map<String, Object> screening = jdbcTemplate.queryForMap(
+                "select tickets_sold, revenue from screening_sales where screening_id = ?", SCREENING_ID);
+        assertThat(((Number) screening.get("tickets_sold")).longValue()).isEqualTo(2);
+        assertThat((BigDecimal) screening.get("revenue")).isEqualByComparingTo("20.00");
+        assertThat((BigDecimal) jdbcTemplate.queryForObject("select sum(revenue) from movie_daily_sales", BigDecimal.class))
+                .isEqualByComparingTo("20.00");
+        assertThat((BigDecimal) jdbcTemplate.queryForObject("select sum(revenue) from hall_daily_sales", BigDecimal.class))
+                .isEqualByComparingTo("20.00");
+
+        // A rebuild from the tickets agrees with the events
+        salesRollupService.rebuild();
+        assertThat((BigDecimal) jdbcTemplate.queryForObject(
+                "select revenue from screening_sales where screening_id = ?", BigDecimal.class, SCREENING_ID))
+                .isEqualByComparingTo("20.00");
+    }
+
+    private List<Ticket> buy(List<Long> seatIds) throws Exception {
+        long holdId = BookingService.newHoldId();
+        assertThat(concurrentBookingService.reserveSeatsAsync(SCREENING_ID, seatIds, user, holdId, BookingService.newHoldExpiry())
+                .get(10, TimeUnit.SECONDS).isSuccess()).isTrue();
+        BookingResult result = concurrentBookingService.createTicketsAfterPayment(SCREENING_ID, seatIds, user, holdId)
+                .get(10, TimeUnit.SECONDS);
+        assertThat(result.isSuccess()).as(result.getMessage()).isTrue();
+        return result.getTickets();
+    }
+}
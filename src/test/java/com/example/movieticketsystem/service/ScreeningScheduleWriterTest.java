@@ -0,0 +1,152 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.ScreeningScheduleDTO;
+import com.example.movieticketsystem.dto.ScreeningScheduleResult;
+import com.example.movieticketsystem.model.Movie;
+import com.example.movieticketsystem.model.Screening;
+import com.example.movieticketsystem.repository.MovieRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two schedules for the same hall written at the same time, into an existing hall and into a hall both create
+ * (test profile, with the movie of seed.sql)
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql(scripts = "/sql/seed.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_CLASS)
+class ScreeningScheduleWriterTest {
+
+    private static final int HALL = 1;
+    private static final int ROUNDS = 20;
+
+    @TempDir
+    static Path seatJournalDir;
+
+    @DynamicPropertySource
+    static void seatJournal(DynamicPropertyRegistry registry) {
+        registry.add("booking.seat-journal.dir", () -> seatJournalDir.toString());
+    }
+
+    @Autowired
+    private ScreeningScheduleWriter screeningScheduleWriter;
+
+    @Autowired
+    private ScreeningScheduler screeningScheduler;
+
+    @Autowired
+    private HallService hallService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Movie movie;
+
+    @BeforeEach
+    void seedOnce() {
+        hallService.getOrCreateHall(HALL, 20);
+        movie = movieRepository.findById(1L).orElseThrow();
+    }
+
+    @Test
+    void overlappingSchedulesForTheSameHallAreNotBothWritten() throws Exception {
+        LocalDateTime firstDay = LocalDateTime.now().plusDays(1).withHour(10).withMinute(0).withSecond(0).withNano(0);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                LocalDateTime start = firstDay.plusDays(round);
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<Boolean>> writes = new ArrayList<>();
+                for (LocalDateTime showTime : List.of(start, start.plusMinutes(30))) {
+                    writes.add(executor.submit(() -> {
+                        go.await();
+                        try {
+                            screeningScheduleWriter.insertAll(List.of(screening(showTime)), 20);
+                            return true;
+                        } catch (IllegalArgumentException e) {
+                            return false;
+                        }
+                    }));
+                }
+                go.countDown();
+
+                int written = 0;
+                for (Future<Boolean> write : writes) {
+                    written += write.get(30, TimeUnit.SECONDS) ? 1 : 0;
+                }
+                assertThat(written).as("schedules written in round %d", round).isEqualTo(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Integer screenings = jdbcTemplate.queryForObject("select count(*) from screenings where hall_number = ?", Integer.class, HALL);
+        assertThat(screenings).isEqualTo(ROUNDS);
+    }
+
+    @Test
+    void schedulesCreatingTheSameHallAtOnceAreBothWritten() throws Exception {
+        LocalDate day = LocalDate.now().plusDays(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                // A hall that does not exist yet, and show times that do not overlap
+                int hall = 100 + round;
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<ScreeningScheduleResult>> schedules = new ArrayList<>();
+                for (String showTime : List.of("10:00", "14:00")) {
+                    ScreeningScheduleDTO request = new ScreeningScheduleDTO(movie.getId(), day, day, String.valueOf(hall),
+                            showTime, new BigDecimal("10.00"), 20);
+                    schedules.add(executor.submit(() -> {
+                        go.await();
+                        return screeningScheduler.schedule(request);
+                    }));
+                }
+                go.countDown();
+
+                for (Future<ScreeningScheduleResult> schedule : schedules) {
+                    assertThat(schedule.get(30, TimeUnit.SECONDS).getScreenings()).isEqualTo(1);
+                }
+                Integer halls = jdbcTemplate.queryForObject("select count(*) from halls where hall_number = ?", Integer.class, hall);
+                assertThat(halls).isEqualTo(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Screening screening(LocalDateTime startTime) {
+        Screening screening = new Screening();
+        screening.setMovie(movie);
+        screening.setStartTime(startTime);
+        screening.setEndTime(startTime.plusMinutes(movie.getDuration()));
+        screening.setHallNumber(HALL);
+        screening.setPrice(new BigDecimal("10.00"));
+        return screening;
+    }
+}
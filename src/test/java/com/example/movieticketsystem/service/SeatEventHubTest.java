@@ -0,0 +1,141 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.SeatMapSeat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeatEventHubTest {
+
+    private static final long SCREENING_ID = 1;
+    private static final int PUBLISHERS = 4;
+    private static final int SEATS_PER_PUBLISHER = 20_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void changesPublishedWhileFlushingAreNotLost() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        SeatEventHub hub = new SeatEventHub(objectMapper) {
+            @Override
+            SseEmitter newEmitter() {
+                return emitter;
+            }
+        };
+        hub.subscribe(SCREENING_ID);
+
+        ExecutorService executor = Executors.newFixedThreadPool(PUBLISHERS + 1);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean publishing = new AtomicBoolean(true);
+            Future<?> flusher = executor.submit(() -> {
+                await(start);
+                while (publishing.get()) {
+                    hub.flush();
+                }
+            });
+            Future<?>[] publishers = new Future<?>[PUBLISHERS];
+            for (int p = 0; p < PUBLISHERS; p++) {
+                long firstSeat = (long) p * SEATS_PER_PUBLISHER;
+                publishers[p] = executor.submit(() -> {
+                    await(start);
+                    for (long seatId = firstSeat; seatId < firstSeat + SEATS_PER_PUBLISHER; seatId++) {
+                        hub.publish(SCREENING_ID, seatId, SeatMapSeat.State.HELD);
+                    }
+                });
+            }
+
+            start.countDown();
+            for (Future<?> publisher : publishers) {
+                publisher.get(30, TimeUnit.SECONDS);
+            }
+            publishing.set(false);
+            flusher.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        hub.flush();
+
+        assertThat(emitter.received).hasSize(PUBLISHERS * SEATS_PER_PUBLISHER);
+        assertThat(emitter.received.values()).containsOnly(SeatMapSeat.State.HELD.name());
+    }
+
+    @Test
+    void latestStateOfASeatWins() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        SeatEventHub hub = new SeatEventHub(objectMapper) {
+            @Override
+            SseEmitter newEmitter() {
+                return emitter;
+            }
+        };
+        hub.subscribe(SCREENING_ID);
+
+        hub.publish(SCREENING_ID, 7, SeatMapSeat.State.HELD);
+        hub.publish(SCREENING_ID, 7, SeatMapSeat.State.SOLD);
+        hub.flush();
+
+        assertThat(emitter.events).isEqualTo(1);
+        assertThat(emitter.received).containsExactly(Map.entry(7L, SeatMapSeat.State.SOLD.name()));
+    }
+
+    @Test
+    void changesAreDroppedWithoutWatchers() {
+        RecordingEmitter emitter = new RecordingEmitter();
+        SeatEventHub hub = new SeatEventHub(objectMapper) {
+            @Override
+            SseEmitter newEmitter() {
+                return emitter;
+            }
+        };
+
+        hub.publish(SCREENING_ID, 7, SeatMapSeat.State.HELD);
+        hub.subscribe(SCREENING_ID);
+        hub.flush();
+
+        assertThat(emitter.events).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Keeps the last state sent for each seat instead of writing to a connection
+     */
+    private class RecordingEmitter extends SseEmitter {
+
+        final Map<Long, String> received = new ConcurrentHashMap<>();
+        volatile int events;
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) throws IOException {
+            events++;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String data && data.startsWith("[")) {
+                    for (JsonNode delta : objectMapper.readTree(data)) {
+                        received.put(delta.get("seatId").asLong(), delta.get("state").asText());
+                    }
+                }
+            }
+        }
+    }
+}
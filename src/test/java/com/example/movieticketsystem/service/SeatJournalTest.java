@@ -0,0 +1,200 @@
+package com.example.movieticketsystem.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeatJournalTest {
+
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+    private static final long HOLD_ID = 42;
+    private static final long EXPIRY = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendedBatchesAreReadBackWhenReopened() throws Exception {
+        SeatJournal journal = new SeatJournal(directory, SEGMENT_SIZE);
+        List<SeatJournal.Entry> written = new ArrayList<>();
+        written.addAll(journal.append(hold(1, 1, 2)));
+        written.addAll(journal.append(List.of(SeatJournal.Entry.release(1, 1))));
+
+        SeatJournal reopened = new SeatJournal(directory, SEGMENT_SIZE);
+
+        assertThat(written).extracting(SeatJournal.Entry::seq).containsExactly(1L, 2L, 3L);
+        assertThat(reopened.takeRecovered()).containsExactlyElementsOf(written);
+        // Only handed out once
+        assertThat(reopened.takeRecovered()).isEmpty();
+        assertThat(reopened.nextSeq()).isEqualTo(4);
+        assertThat(reopened.nodeId()).isEqualTo(journal.nodeId());
+    }
+
+    @Test
+    void batchWithCorruptedLastRecordIsDroppedAsAWhole() throws Exception {
+        SeatJournal journal = new SeatJournal(directory, SEGMENT_SIZE);
+        List<SeatJournal.Entry> complete = journal.append(hold(1, 1, 2));
+        journal.append(hold(1, 10, 3));
+
+        // Checksum of the last record of the second batch
+        try (FileChannel channel = FileChannel.open(segment(1), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 0xBADC0DE), 4L * SeatJournal.RECORD_SIZE + 44);
+        }
+        SeatJournal reopened = new SeatJournal(directory, SEGMENT_SIZE);
+
+        assertThat(reopened.takeRecovered()).containsExactlyElementsOf(complete);
+        // Appends continue after the last complete batch
+        assertThat(reopened.append(List.of(SeatJournal.Entry.release(1, 1))))
+                .extracting(SeatJournal.Entry::seq).containsExactly(3L);
+    }
+
+    @Test
+    void batchCutOffInTheMiddleOfARecordIsDropped() throws Exception {
+        SeatJournal journal = new SeatJournal(directory, SEGMENT_SIZE);
+        List<SeatJournal.Entry> complete = journal.append(hold(1, 1, 2));
+        journal.append(hold(1, 10, 3));
+
+        try (FileChannel channel = FileChannel.open(segment(1), StandardOpenOption.WRITE)) {
+            channel.truncate(4L * SeatJournal.RECORD_SIZE + 20);
+        }
+        SeatJournal reopened = new SeatJournal(directory, SEGMENT_SIZE);
+
+        assertThat(reopened.takeRecovered()).containsExactlyElementsOf(complete);
+        assertThat(reopened.nextSeq()).isEqualTo(3);
+    }
+
+    @Test
+    void fullSegmentRollsOverAndAppliedSegmentsAreDeleted() throws Exception {
+        // Room for three records a segment
+        SeatJournal journal = new SeatJournal(directory, 3 * SeatJournal.RECORD_SIZE + 10);
+        List<SeatJournal.Entry> written = new ArrayList<>();
+        written.addAll(journal.append(hold(1, 1, 2)));
+        // Does not fit behind the first batch
+        written.addAll(journal.append(hold(2, 1, 2)));
+        written.addAll(journal.append(List.of(SeatJournal.Entry.release(1, 1))));
+
+        assertThat(segments()).containsExactly("seats-1.journal", "seats-3.journal");
+        assertThatThrownBy(() -> journal.append(hold(3, 1, 4))).isInstanceOf(IllegalArgumentException.class);
+
+        SeatJournal reopened = new SeatJournal(directory, 3 * SeatJournal.RECORD_SIZE);
+        assertThat(reopened.takeRecovered()).containsExactlyElementsOf(written);
+        assertThat(segments()).containsExactly("seats-1.journal", "seats-3.journal", "seats-6.journal");
+
+        // The first segment is applied, the second one only partly
+        reopened.deleteApplied(4);
+        assertThat(segments()).containsExactly("seats-3.journal", "seats-6.journal");
+        // The segment being appended to is kept
+        reopened.deleteApplied(5);
+        assertThat(segments()).containsExactly("seats-6.journal");
+    }
+
+    @Test
+    void acknowledgedBatchIsNeverOnDiskBehindAGap() throws Exception {
+        // Keeps what reached the disk; the first force stalls, like an fsync of a busy disk
+        List<int[]> forced = new ArrayList<>();
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+        SeatJournal journal = new SeatJournal(directory, SEGMENT_SIZE) {
+            @Override
+            void force(MappedByteBuffer buffer, int offset, int length) {
+                if (first.getAndSet(false)) {
+                    stalled.countDown();
+                    awaitQuietly(resume);
+                }
+                super.force(buffer, offset, length);
+                synchronized (forced) {
+                    forced.add(new int[]{offset, length});
+                }
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<SeatJournal.Entry>> earlier = executor.submit(() -> journal.append(hold(1, 1, 2)));
+            assertThat(stalled.await(10, TimeUnit.SECONDS)).isTrue();
+            // The later batch is acknowledged with what is on disk at that moment, as if the machine went down right after
+            Future<byte[]> crashImage = executor.submit(() -> {
+                journal.append(hold(1, 10, 3));
+                return onDisk(segment(1), forced);
+            });
+            Thread.sleep(200);
+            resume.countDown();
+
+            Path crashed = Files.createDirectory(directory.resolve("crashed"));
+            Files.write(crashed.resolve("seats-1.journal"), crashImage.get(10, TimeUnit.SECONDS));
+            assertThat(earlier.get(10, TimeUnit.SECONDS)).hasSize(2);
+
+            assertThat(new SeatJournal(crashed, SEGMENT_SIZE).takeRecovered())
+                    .extracting(SeatJournal.Entry::seq).containsExactly(1L, 2L, 3L, 4L, 5L);
+        } finally {
+            resume.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The file as a crash would leave it: only the forced ranges, zeros elsewhere
+     */
+    private static byte[] onDisk(Path file, List<int[]> forced) throws Exception {
+        byte[] written = Files.readAllBytes(file);
+        byte[] disk = new byte[written.length];
+        synchronized (forced) {
+            for (int[] range : forced) {
+                System.arraycopy(written, range[0], disk, range[0], range[1]);
+            }
+        }
+        return disk;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<SeatJournal.Entry> hold(long screeningId, long firstSeatId, int seats) {
+        List<SeatJournal.Entry> entries = new ArrayList<>();
+        for (long seatId = firstSeatId; seatId < firstSeatId + seats; seatId++) {
+            entries.add(SeatJournal.Entry.hold(screeningId, seatId, HOLD_ID, EXPIRY, seats));
+        }
+        return entries;
+    }
+
+    private Path segment(long firstSeq) {
+        return directory.resolve("seats-" + firstSeq + ".journal");
+    }
+
+    private List<String> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".journal"))
+                    .sorted((a, b) -> Long.compare(firstSeq(a), firstSeq(b)))
+                    .toList();
+        }
+    }
+
+    private static long firstSeq(String name) {
+        return Long.parseLong(name.substring("seats-".length(), name.length() - ".journal".length()));
+    }
+}
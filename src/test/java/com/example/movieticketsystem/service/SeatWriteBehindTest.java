@@ -0,0 +1,150 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.model.SeatJournalCheckpoint;
+import com.example.movieticketsystem.repository.SeatJournalCheckpointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class SeatWriteBehindTest {
+
+    private static final long HOLD_ID = 42;
+    private static final LocalDateTime EXPIRY = LocalDateTime.now().plusMinutes(10).truncatedTo(ChronoUnit.SECONDS);
+
+    @TempDir
+    Path directory;
+
+    private SeatReservationWriter seatReservationWriter;
+    private SeatJournalCheckpointRepository seatJournalCheckpointRepository;
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() {
+        seatReservationWriter = mock(SeatReservationWriter.class);
+        seatJournalCheckpointRepository = mock(SeatJournalCheckpointRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        when(seatJournalCheckpointRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(seatReservationWriter.applyJournal(anyString(), anyLong(), anyList())).thenReturn(List.of());
+    }
+
+    @Test
+    void onlyChangesAfterTheCheckpointAreReplayed() throws Exception {
+        SeatWriteBehind stopped = writeBehind();
+        stopped.record(1L, List.of(), List.of(new SeatReservationWriter.Hold(List.of(1L), HOLD_ID, EXPIRY)));
+        stopped.record(1L, List.of(), List.of(new SeatReservationWriter.Hold(List.of(2L, 3L), HOLD_ID, EXPIRY)));
+        // Not applied before the node stopped
+        stopped.record(1L, List.of(1L), List.of(new SeatReservationWriter.Hold(List.of(4L), HOLD_ID, EXPIRY)));
+
+        SeatWriteBehind restarted = writeBehind();
+        String node = Files.readString(directory.resolve("node")).trim();
+        when(seatJournalCheckpointRepository.findById(node)).thenReturn(Optional.of(new SeatJournalCheckpoint(node, 3)));
+        restarted.recover();
+
+        ArgumentCaptor<List<SeatReservationWriter.Changes>> changes = changesCaptor();
+        verify(seatReservationWriter).applyJournal(eq(node), eq(5L), changes.capture());
+        assertThat(changes.getValue()).singleElement().satisfies(change -> {
+            assertThat(change.screeningId()).isEqualTo(1L);
+            assertThat(change.releasedSeatIds()).containsExactly(1L);
+            assertThat(change.holds()).containsExactly(new SeatReservationWriter.Hold(List.of(4L), HOLD_ID, EXPIRY));
+        });
+        verifyNoMoreInteractions(seatReservationWriter);
+    }
+
+    @Test
+    void chunkThatKeepsFailingIsAppliedScreeningByScreening() throws Exception {
+        // Screening 2 cannot be written, and takes the chunk it is in down with it
+        when(seatReservationWriter.applyJournal(anyString(), anyLong(), anyList())).thenAnswer(invocation -> {
+            List<SeatReservationWriter.Changes> changes = invocation.getArgument(2);
+            if (changes.stream().anyMatch(change -> change.screeningId() == 2L)) {
+                throw new IllegalStateException("seat row locked");
+            }
+            return List.of();
+        });
+        SeatWriteBehind writeBehind = writeBehind();
+        writeBehind.recover();
+        writeBehind.record(1L, List.of(), List.of(new SeatReservationWriter.Hold(List.of(1L), HOLD_ID, EXPIRY)));
+        writeBehind.record(2L, List.of(), List.of(new SeatReservationWriter.Hold(List.of(1L, 2L), HOLD_ID, EXPIRY)));
+
+        // First failure is retried as a whole
+        writeBehind.applyPending();
+        verify(seatReservationWriter).applyJournal(anyString(), eq(3L), anyList());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+
+        writeBehind.applyPending();
+
+        ArgumentCaptor<List<SeatReservationWriter.Changes>> changes = changesCaptor();
+        // Each screening before the chunk's checkpoint, which is stored on its own once they are done
+        verify(seatReservationWriter, times(2)).applyJournal(anyString(), eq(0L), changes.capture());
+        assertThat(changes.getAllValues()).extracting(list -> list.get(0).screeningId()).containsExactlyInAnyOrder(1L, 2L);
+        verify(seatReservationWriter).applyJournal(anyString(), eq(3L), eq(List.of()));
+        verify(eventPublisher).publishEvent(new SeatHoldRejectedEvent(2L, List.of(1L, 2L), HOLD_ID));
+
+        // Skipped, not retried
+        writeBehind.applyPending();
+        verify(seatReservationWriter, times(5)).applyJournal(anyString(), anyLong(), anyList());
+    }
+
+    @Test
+    void waitingForAScreeningLeavesTheApplyToTheApplier() throws Exception {
+        List<String> applyingThreads = new CopyOnWriteArrayList<>();
+        CountDownLatch dbAvailable = new CountDownLatch(1);
+        when(seatReservationWriter.applyJournal(anyString(), anyLong(), anyList())).thenAnswer(invocation -> {
+            applyingThreads.add(Thread.currentThread().getName());
+            assertThat(dbAvailable.await(10, TimeUnit.SECONDS)).isTrue();
+            return List.of();
+        });
+        SeatWriteBehind writeBehind = writeBehind();
+        try {
+            writeBehind.recover();
+            writeBehind.record(1L, List.of(), List.of(new SeatReservationWriter.Hold(List.of(1L), HOLD_ID, EXPIRY)));
+
+            // Nothing journaled for screening 2
+            assertThat(writeBehind.awaitApplied(2L, 0)).isTrue();
+            // The database is slow: the caller gives up instead of writing the journal itself
+            assertThat(writeBehind.awaitApplied(1L, 100)).isFalse();
+
+            dbAvailable.countDown();
+            assertThat(writeBehind.awaitApplied(1L, 10_000)).isTrue();
+            assertThat(applyingThreads).isNotEmpty().doesNotContain(Thread.currentThread().getName());
+        } finally {
+            dbAvailable.countDown();
+            writeBehind.shutdown();
+        }
+    }
+
+    private SeatWriteBehind writeBehind() throws Exception {
+        return new SeatWriteBehind(true, directory.toString(), 1, 100, 2, seatReservationWriter,
+                seatJournalCheckpointRepository, eventPublisher, new SimpleMeterRegistry());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<SeatReservationWriter.Changes>> changesCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.movieticketsystem.service;
+
+import com.example.movieticketsystem.dto.QueueStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WaitingRoomTest {
+
+    private static final long SCREENING_ID = 1;
+
+    // Start away from 0, which the room uses for "not admitted"
+    private final AtomicLong clock = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    @Test
+    void customersAreAdmittedInArrivalOrderAtTheConfiguredRate() {
+        WaitingRoom waitingRoom = waitingRoom(2);
+
+        // One second of admissions goes straight through
+        assertThat(waitingRoom.enter(SCREENING_ID, 1L).isAdmitted()).isTrue();
+        assertThat(waitingRoom.enter(SCREENING_ID, 2L).isAdmitted()).isTrue();
+        for (long user = 3; user <= 6; user++) {
+            QueueStatus status = waitingRoom.enter(SCREENING_ID, user);
+            assertThat(status.isAdmitted()).isFalse();
+            assertThat(status.getPosition()).isEqualTo(user - 2);
+        }
+        assertThat(waitingRoom.enter(SCREENING_ID, 6L).getEtaSeconds()).isEqualTo(2);
+
+        // Not admitted before the next customers in line got their turn
+        tick(500);
+        assertThat(waitingRoom.admit(SCREENING_ID, 6L)).isFalse();
+        assertThat(waitingRoom.admit(SCREENING_ID, 3L)).isTrue();
+        assertThat(waitingRoom.admit(SCREENING_ID, 4L)).isFalse();
+
+        tick(500);
+        assertThat(waitingRoom.admit(SCREENING_ID, 6L)).isFalse();
+        assertThat(waitingRoom.admit(SCREENING_ID, 4L)).isTrue();
+        assertThat(waitingRoom.enter(SCREENING_ID, 5L).getPosition()).isEqualTo(1);
+
+        tick(1000);
+        assertThat(waitingRoom.admit(SCREENING_ID, 5L)).isTrue();
+        assertThat(waitingRoom.admit(SCREENING_ID, 6L)).isTrue();
+        // Admitted customers keep their pass
+        assertThat(waitingRoom.admit(SCREENING_ID, 1L)).isTrue();
+    }
+
+    @Test
+    void customersWhoStopWaitingAreSweptAndQueueAgainAtTheBack() {
+        // One customer every 100 seconds, so the queue barely moves during the test
+        WaitingRoom waitingRoom = waitingRoom(0.01);
+        assertThat(waitingRoom.admit(SCREENING_ID, 1L)).isTrue();
+        assertThat(waitingRoom.enter(SCREENING_ID, 2L).getPosition()).isEqualTo(1);
+        assertThat(waitingRoom.enter(SCREENING_ID, 3L).getPosition()).isEqualTo(2);
+
+        // Customer 3 is still polling the queue, customer 2 left
+        tick(50_000);
+        waitingRoom.enter(SCREENING_ID, 3L);
+        tick(20_000);
+        waitingRoom.sweep();
+
+        assertThat(waitingRoom.enter(SCREENING_ID, 3L).getPosition()).isEqualTo(2);
+        assertThat(waitingRoom.enter(SCREENING_ID, 2L).getPosition()).isEqualTo(3);
+        // Admitted customers are kept until their pass runs out
+        assertThat(waitingRoom.admit(SCREENING_ID, 1L)).isTrue();
+    }
+
+    @Test
+    void admissionRateFollowsTheMeasuredBookingTime() {
+        WaitingRoom waitingRoom = waitingRoom(0);
+        assertThat(waitingRoom.capacity()).isEqualTo(20);
+
+        waitingRoom.recordBookingTime(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // 10 permits, half used, 100 ms a booking
+        assertThat(waitingRoom.capacity()).isEqualTo(50);
+    }
+
+    private WaitingRoom waitingRoom(double admitPerSecond) {
+        return new WaitingRoom(true, admitPerSecond, 20, 0.5, 10, 10, 60, new SimpleMeterRegistry(), clock::get);
+    }
+
+    private void tick(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
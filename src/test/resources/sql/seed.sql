@@ -0,0 +1,18 @@
+-- Shared by the tests on the test profile: a movie, a customer and the ten seats of row 1 in hall 1
+INSERT INTO movies (id, title, duration) VALUES (1, 'Test', 120);
+
+INSERT INTO users (id, username, email, password) VALUES (100, 'buyer', 'buyer@example.com', 'x');
+
+INSERT INTO seats (id, hall_number, row_num, seat_number) VALUES
+    (1, 1, 1, 1),
+    (2, 1, 1, 2),
+    (3, 1, 1, 3),
+    (4, 1, 1, 4),
+    (5, 1, 1, 5),
+    (6, 1, 1, 6),
+    (7, 1, 1, 7),
+    (8, 1, 1, 8),
+    (9, 1, 1, 9),
+    (10, 1, 1, 10);
+-- Seats created by the application (hall templates) get ids after these
+UPDATE seats_seq SET next_val = 1000;